@@ -0,0 +1,40 @@
+package benchmarks;
+
+import game.GameState;
+import game.bot.BeamSearchBot;
+import game.bot.BoardEvaluator;
+import game.bot.Placement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a full beam search across the preview for a freshly spawned piece, with different beam widths.
+ * The searches run without a deadline, and each search after the first one reuses the evaluations in the transposition
+ * table, like the searches of consecutive pieces do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeamSearchBotBenchmark {
+
+    @Param({"8", "32", "128"})
+    private int beamWidth;
+
+    private GameState game;
+    private BeamSearchBot bot;
+
+    @Setup
+    public void setUp() {
+        game = BoardFixtures.createPlayedGame(42, 25);
+        bot = new BeamSearchBot(BoardEvaluator.DEFAULT, beamWidth, BeamSearchBot.DEFAULT_TABLE_CAPACITY, false);
+    }
+
+    @Benchmark
+    public Placement findPlacement() {
+        return bot.findPlacement(game);
+    }
+}
@@ -0,0 +1,27 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so the reports include the allocation rate (gc.alloc.rate.norm is the
+ * amount of bytes allocated per operation).
+ * Arguments: [benchmark name regex] [JSON result file]
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "benchmarks\\..*";
+
+        OptionsBuilder options = new OptionsBuilder();
+        options.include(include);
+        options.addProfiler(GCProfiler.class);
+        if (args.length > 1) {
+            options.resultFormat(ResultFormatType.JSON);
+            options.result(args[1]);
+        }
+        new Runner(options.build()).run();
+    }
+}
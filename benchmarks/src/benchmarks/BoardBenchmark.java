@@ -0,0 +1,51 @@
+package benchmarks;
+
+import game.Board;
+import game.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the row clearing of the board, i.e. the work done by <code>GameState</code> when a piece is placed down.
+ * Clearing changes the board, so each clear works on a fresh copy of the template board.
+ * The cost of the copy alone is measured by <code>copy()</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    private Board template;
+    private Board board;
+    private int filledRows;
+
+    @Setup
+    public void setUp() {
+        template = BoardFixtures.createStackedBoard();
+        board = new Board();
+        filledRows = BoardFixtures.getStackedBoardFilledRows();
+    }
+
+    @Benchmark
+    public int getFilledRows() {
+        // The rows of an I piece placed vertically in the 4 filled rows
+        return template.getFilledRows(GameState.TILE_COUNT_Y - 4, 4);
+    }
+
+    @Benchmark
+    public Board copy() {
+        board.copyFrom(template);
+        return board;
+    }
+
+    @Benchmark
+    public Board clearFilledRows() {
+        board.copyFrom(template);
+        board.clearRows(filledRows);
+        return board;
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import game.Board;
+import game.GameState;
+import game.bot.BoardEvaluator;
+import game.bot.PlacementBot;
+import game.simulation.SimulatedGame;
+
+/**
+ * Creates the boards and games used by the benchmarks.
+ */
+public abstract class BoardFixtures {
+
+    /**
+     * Creates a board with an uneven stack in its lower half and 4 filled rows at the bottom.
+     *
+     * @return the created board
+     */
+    public static Board createStackedBoard() {
+        Board board = new Board();
+        for (int y = GameState.TILE_COUNT_Y - 4; y < GameState.TILE_COUNT_Y; y++) {
+            for (int x = 0; x < GameState.TILE_COUNT_X; x++) {
+                board.fill(x, y, (x + y) % GameState.PIECE_COUNT);
+            }
+        }
+        for (int x = 0; x < GameState.TILE_COUNT_X; x++) {
+            int height = (x * 7) % 6;
+            for (int y = GameState.TILE_COUNT_Y - 5; y > GameState.TILE_COUNT_Y - 5 - height; y--) {
+                if ((x + y) % 4 != 0) board.fill(x, y, x % GameState.PIECE_COUNT);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Returns the bitmask of the 4 filled rows at the bottom of the stacked board.
+     *
+     * @return the filled rows as a bitmask
+     */
+    public static int getStackedBoardFilledRows() {
+        return 0b1111 << (GameState.TILE_COUNT_Y - 4);
+    }
+
+    /**
+     * Creates a game in progress: a greedy <code>PlacementBot</code> places the given amount of pieces, then the game is
+     * advanced until the next piece is falling.
+     *
+     * @param seed   the seed of the game's piece order
+     * @param pieces the amount of pieces placed
+     * @return the game, its falling piece in its spawn position
+     */
+    public static GameState createPlayedGame(long seed, int pieces) {
+        SimulatedGame simulatedGame = new SimulatedGame(seed, new PlacementBot(BoardEvaluator.DEFAULT, 0, null), pieces);
+        simulatedGame.play();
+        GameState game = simulatedGame.getGame();
+        while (!game.isPieceActive()) {
+            game.tick();
+        }
+        return game;
+    }
+}
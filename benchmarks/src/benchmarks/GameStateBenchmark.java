@@ -0,0 +1,52 @@
+package benchmarks;
+
+import game.GameState;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks cloning and snapshotting a game in progress, as done by bots branching on moves and by suspending a game.
+ * The game is played for a while first, so the board and the counters aren't in their initial state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateBenchmark {
+
+    private GameState game;
+    private GameState copy;
+    private ByteBuffer snapshot;
+
+    @Setup
+    public void setUp() {
+        game = BoardFixtures.createPlayedGame(42, 20);
+        copy = game.copy();
+        snapshot = ByteBuffer.allocate(GameState.MAX_SNAPSHOT_SIZE);
+        game.writeSnapshot(snapshot);
+    }
+
+    @Benchmark
+    public GameState copyInto() {
+        game.copyInto(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public ByteBuffer writeSnapshot() {
+        snapshot.clear();
+        game.writeSnapshot(snapshot);
+        return snapshot;
+    }
+
+    @Benchmark
+    public GameState readSnapshot() {
+        snapshot.rewind();
+        copy.readSnapshot(snapshot);
+        return copy;
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks;
+
+import game.Board;
+import game.pieces.Piece;
+import game.pieces.PieceType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the movement of a falling piece over a partially filled board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceBenchmark {
+
+    private Board board;
+    private Piece piece;
+    private int direction;
+
+    @Setup
+    public void setUp() {
+        board = BoardFixtures.createStackedBoard();
+        piece = new Piece(PieceType.T);
+        piece.calculateGravityCount(board);
+        // Lower the piece to the middle of the board, so it can rotate freely
+        for (int i = 0; i < 8; i++) {
+            piece.fall();
+        }
+        direction = 1;
+    }
+
+    @Benchmark
+    public int calculateGravityCount() {
+        piece.calculateGravityCount(board);
+        return piece.getGravityCount();
+    }
+
+    @Benchmark
+    public Piece rotate() {
+        piece.rotate(board, 1);
+        return piece;
+    }
+
+    @Benchmark
+    public boolean move() {
+        // Moves back and forth, so the piece stays in the same area of the board
+        direction = -direction;
+        return piece.move(board, direction);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import game.GameState;
+import game.pieces.PieceType;
+import game.pieces.Randomizer;
+import game.pieces.PieceOrder;
+import game.pieces.PiecePreview;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the piece queue, i.e. reading the upcoming pieces and taking the next piece, and the piece generation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceOrderBenchmark {
+
+    private PieceOrder pieceOrder;
+    private Randomizer randomizer;
+    private final byte[] sequence = new byte[1024];
+
+    @Setup
+    public void setUp() {
+        pieceOrder = new PieceOrder(0);
+        randomizer = Randomizer.sevenBag(0);
+    }
+
+    @Benchmark
+    public int readPreview() {
+        PiecePreview preview = pieceOrder.getPreview();
+        int ids = 0;
+        for (int i = 0; i < preview.size(); i++) {
+            ids = ids * GameState.PIECE_COUNT + preview.getPieceId(i);
+        }
+        return ids;
+    }
+
+    /**
+     * Generates a long piece sequence in bulk, as used to give every compared bot the same pieces.
+     */
+    @Benchmark
+    public byte[] fillSequence() {
+        randomizer.fill(sequence, 0, sequence.length);
+        return sequence;
+    }
+
+    @Benchmark
+    public PieceType nextPiece() {
+        PieceType piece = pieceOrder.getNextPiece();
+        pieceOrder.removePiece();
+        return piece;
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import game.GameState;
+import game.bot.BoardEvaluator;
+import game.bot.Placement;
+import game.bot.PlacementBot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks finding a placement for a freshly spawned piece, greedily and with a lookahead on the calling thread or on
+ * the common fork-join pool. The game is played for a while first, so the board isn't empty.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementBotBenchmark {
+
+    @Param({"0", "1", "2"})
+    private int lookahead;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private GameState game;
+    private PlacementBot bot;
+
+    @Setup
+    public void setUp() {
+        game = BoardFixtures.createPlayedGame(42, 25);
+        bot = new PlacementBot(BoardEvaluator.DEFAULT, lookahead, parallel ? ForkJoinPool.commonPool() : null);
+    }
+
+    @Benchmark
+    public Placement findPlacement() {
+        return bot.findPlacement(game);
+    }
+}
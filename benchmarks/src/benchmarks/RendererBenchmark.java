@@ -0,0 +1,79 @@
+package benchmarks;
+
+import game.GameState;
+import game.Input;
+import org.openjdk.jmh.annotations.*;
+import renderer.Renderer;
+import util.DisplayInfo;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks rendering a game in progress to an off-screen image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RendererBenchmark {
+
+    @Param({"1080", "2160"})
+    private int height;
+
+    private BufferedImage image;
+    private Graphics2D g2D;
+    private GameState game;
+    private boolean movedLeft;
+
+    @Setup
+    public void setUp() {
+        DisplayInfo.setResolution(height * 16 / 9, height);
+        image = new BufferedImage(height / 2, height, BufferedImage.TYPE_INT_RGB);
+        g2D = image.createGraphics();
+
+        // Stack a few pieces, so there are placed tiles to be drawn
+        game = BoardFixtures.createPlayedGame(0, 8);
+
+        Renderer.setGraphics2D(g2D);
+        Renderer.setGame(game);
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2D.dispose();
+    }
+
+    /**
+     * Renders a frame in which nothing changed, only the cached playfield is drawn.
+     */
+    @Benchmark
+    public BufferedImage render() {
+        Renderer.render();
+        return image;
+    }
+
+    /**
+     * Renders a frame after the falling piece moved 1 column, the typical frame during play.
+     */
+    @Benchmark
+    public BufferedImage renderMovedPiece() {
+        game.applyInput(movedLeft ? Input.MOVE_RIGHT : Input.MOVE_LEFT);
+        movedLeft = !movedLeft;
+        Renderer.render();
+        return image;
+    }
+
+    /**
+     * Renders a frame from scratch, as after the game or the resolution changed.
+     */
+    @Benchmark
+    public BufferedImage renderFull() {
+        Renderer.setGame(game);
+        Renderer.render();
+        return image;
+    }
+}
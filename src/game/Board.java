@@ -0,0 +1,258 @@
+package game;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A <code>Board</code> instance stores the placed tiles of the playfield.
+ * Every row is kept as a single <code>int</code> bitmask (bit <code>x</code> set means column <code>x</code> is occupied),
+ * while the colors are kept in a separate byte-per-cell plane.
+ * A color value of 0 means the cell is empty, any other value is the placed piece's id + 1.
+ * The height of every column is kept up to date as tiles are placed and rows are cleared.
+ */
+public class Board {
+
+    public static final int FULL_ROW = (1 << GameState.TILE_COUNT_X) - 1;
+
+    private final int[] rows;
+    private final byte[] colors;
+    private final int[] columnHeights;
+    private int markedRows;
+
+    /**
+     * Constructs a new, empty <code>Board</code> instance.
+     */
+    public Board() {
+        this.rows = new int[GameState.TILE_COUNT_Y];
+        this.colors = new byte[GameState.TILE_COUNT_X * GameState.TILE_COUNT_Y];
+        this.columnHeights = new int[GameState.TILE_COUNT_X];
+        this.markedRows = 0;
+    }
+
+    /**
+     * Returns whether the given cell is occupied.
+     * Cells outside the board are not occupied.
+     *
+     * @param x the cell's column
+     * @param y the cell's row
+     * @return whether the cell is occupied
+     */
+    public boolean isOccupied(int x, int y) {
+        if (x < 0 || x >= GameState.TILE_COUNT_X || y < 0 || y >= GameState.TILE_COUNT_Y) return false;
+        return (rows[y] & (1 << x)) != 0;
+    }
+
+    /**
+     * Returns the occupancy bitmask of the given row.
+     *
+     * @param y the row
+     * @return the row's bitmask
+     */
+    public int getRow(int y) {
+        return rows[y];
+    }
+
+    /**
+     * Returns the color value of the given cell.
+     *
+     * @param x the cell's column
+     * @param y the cell's row
+     * @return 0 if the cell is empty, otherwise the placed piece's id + 1
+     */
+    public byte getColor(int x, int y) {
+        return colors[y * GameState.TILE_COUNT_X + x];
+    }
+
+    /**
+     * Occupies the given cell with the given piece's color.
+     *
+     * @param x       the cell's column
+     * @param y       the cell's row
+     * @param pieceId the id of the piece that occupies the cell
+     */
+    public void fill(int x, int y, int pieceId) {
+        rows[y] |= 1 << x;
+        colors[y * GameState.TILE_COUNT_X + x] = (byte) (pieceId + 1);
+        columnHeights[x] = Math.max(columnHeights[x], GameState.TILE_COUNT_Y - y);
+    }
+
+    /**
+     * Occupies the cells of the given row bitmask with the given piece's color.
+     *
+     * @param y       the row
+     * @param rowMask the cells to be occupied (bit <code>x</code> set means column <code>x</code>)
+     * @param pieceId the id of the piece that occupies the cells
+     */
+    public void fillRow(int y, int rowMask, int pieceId) {
+        rows[y] |= rowMask;
+        int offset = y * GameState.TILE_COUNT_X;
+        int height = GameState.TILE_COUNT_Y - y;
+        for (int remaining = rowMask; remaining != 0; remaining &= remaining - 1) {
+            int x = Integer.numberOfTrailingZeros(remaining);
+            colors[offset + x] = (byte) (pieceId + 1);
+            if (columnHeights[x] < height) columnHeights[x] = height;
+        }
+    }
+
+    /**
+     * Returns whether the row is filled.
+     *
+     * @param y the row
+     * @return whether the row is filled
+     */
+    public boolean isRowFilled(int y) {
+        return rows[y] == FULL_ROW;
+    }
+
+    /**
+     * Returns which of the given rows are filled.
+     * Rows outside the board are skipped.
+     *
+     * @param fromRow  the first row to be checked
+     * @param rowCount the amount of rows to be checked
+     * @return the filled rows as a bitmask (bit <code>y</code> set means row <code>y</code> is filled)
+     */
+    public int getFilledRows(int fromRow, int rowCount) {
+        int rowsFilled = 0;
+        int toRow = Math.min(fromRow + rowCount, GameState.TILE_COUNT_Y);
+        for (int y = Math.max(fromRow, 0); y < toRow; y++) {
+            if (isRowFilled(y)) rowsFilled |= 1 << y;
+        }
+        return rowsFilled;
+    }
+
+    /**
+     * Removes the rows in the given bitmask (bit <code>y</code> set means row <code>y</code> is removed) and moves the rows above them down.
+     * All rows are compacted in a single pass from the bottom of the board.
+     *
+     * @param rowMask the rows to be removed
+     */
+    public void clearRows(int rowMask) {
+        int target = GameState.TILE_COUNT_Y - 1;
+        for (int y = GameState.TILE_COUNT_Y - 1; y >= 0; y--) {
+            if ((rowMask & (1 << y)) != 0) continue;
+            if (target != y) {
+                rows[target] = rows[y];
+                System.arraycopy(colors, y * GameState.TILE_COUNT_X, colors, target * GameState.TILE_COUNT_X, GameState.TILE_COUNT_X);
+            }
+            target--;
+        }
+        for (int y = target; y >= 0; y--) {
+            rows[y] = 0;
+        }
+        Arrays.fill(colors, 0, (target + 1) * GameState.TILE_COUNT_X, (byte) 0);
+        markedRows &= ~rowMask;
+        calculateColumnHeights();
+    }
+
+    /**
+     * Recalculates the height of every column.
+     * The rows are scanned from the top, the first row in which a column is occupied determines its height.
+     */
+    private void calculateColumnHeights() {
+        Arrays.fill(columnHeights, 0);
+        int remainingColumns = FULL_ROW;
+        for (int y = 0; y < GameState.TILE_COUNT_Y && remainingColumns != 0; y++) {
+            int topTiles = rows[y] & remainingColumns;
+            remainingColumns &= ~topTiles;
+            for (; topTiles != 0; topTiles &= topTiles - 1) {
+                columnHeights[Integer.numberOfTrailingZeros(topTiles)] = GameState.TILE_COUNT_Y - y;
+            }
+        }
+    }
+
+    /**
+     * Returns the height of the given column, i.e. the number of rows from the bottom of the board up to and including the
+     * column's topmost occupied tile.
+     *
+     * @param x the column
+     * @return the column's height, 0 if the column is empty
+     */
+    public int getColumnHeight(int x) {
+        return columnHeights[x];
+    }
+
+    /**
+     * Returns the height of the highest column.
+     *
+     * @return the highest column's height
+     */
+    public int getMaxColumnHeight() {
+        int maxHeight = 0;
+        for (int height : columnHeights) {
+            if (height > maxHeight) maxHeight = height;
+        }
+        return maxHeight;
+    }
+
+    /**
+     * Replaces the contents of this board with the contents of the given board.
+     *
+     * @param other the board to be copied
+     */
+    public void copyFrom(Board other) {
+        System.arraycopy(other.rows, 0, rows, 0, rows.length);
+        System.arraycopy(other.colors, 0, colors, 0, colors.length);
+        System.arraycopy(other.columnHeights, 0, columnHeights, 0, columnHeights.length);
+        markedRows = other.markedRows;
+    }
+
+    /**
+     * Writes the board's contents compactly: the height of the highest column, the marked rows, the bitmasks of the rows up
+     * to that height and their colors packed 2 cells per byte. The empty rows above the highest column aren't written.
+     *
+     * @param buffer the buffer the contents are written to
+     */
+    public void writeState(ByteBuffer buffer) {
+        int height = getMaxColumnHeight();
+        int top = GameState.TILE_COUNT_Y - height;
+        buffer.put((byte) height);
+        buffer.putInt(markedRows);
+        for (int y = top; y < GameState.TILE_COUNT_Y; y++) {
+            buffer.putShort((short) rows[y]);
+        }
+        for (int i = top * GameState.TILE_COUNT_X; i < colors.length; i += 2) {
+            buffer.put((byte) (colors[i] | colors[i + 1] << 4));
+        }
+    }
+
+    /**
+     * Replaces the contents of this board with the contents written by <code>writeState()</code>.
+     *
+     * @param buffer the buffer the contents are read from
+     */
+    public void readState(ByteBuffer buffer) {
+        int top = GameState.TILE_COUNT_Y - buffer.get();
+        markedRows = buffer.getInt();
+        Arrays.fill(rows, 0, top, 0);
+        for (int y = top; y < GameState.TILE_COUNT_Y; y++) {
+            rows[y] = buffer.getShort();
+        }
+        Arrays.fill(colors, 0, top * GameState.TILE_COUNT_X, (byte) 0);
+        for (int i = top * GameState.TILE_COUNT_X; i < colors.length; i += 2) {
+            byte packedColors = buffer.get();
+            colors[i] = (byte) (packedColors & 0xF);
+            colors[i + 1] = (byte) ((packedColors >> 4) & 0xF);
+        }
+        calculateColumnHeights();
+    }
+
+    /**
+     * Returns whether the row is marked, meaning whether it is supposed to be rendered as white (used for animations).
+     *
+     * @param y the row
+     * @return whether the row is marked
+     */
+    public boolean isRowMarked(int y) {
+        return (markedRows & (1 << y)) != 0;
+    }
+
+    /**
+     * Toggles the marking of the rows in the given bitmask.
+     *
+     * @param rowMask the rows to be toggled
+     */
+    public void toggleMarkedRows(int rowMask) {
+        markedRows ^= rowMask;
+    }
+}
@@ -0,0 +1,54 @@
+package game;
+
+/**
+ * Receives the events of a <code>GameState</code>.
+ * All methods are empty by default, so implementations only need to override the events they are interested in.
+ */
+public interface GameListener {
+
+    /**
+     * Invoked when the score changes.
+     *
+     * @param score the new score
+     */
+    default void scoreChanged(int score) {
+    }
+
+    /**
+     * Invoked when the game moves on to the next level.
+     *
+     * @param level the new level
+     */
+    default void levelChanged(int level) {
+    }
+
+    /**
+     * Invoked every second of the game.
+     *
+     * @param time the time the game has been running for in seconds
+     */
+    default void timeChanged(int time) {
+    }
+
+    /**
+     * Invoked when the filled rows get removed from the board.
+     *
+     * @param rows the cleared rows as a bitmask (bit <code>y</code> set means row <code>y</code> was cleared)
+     */
+    default void rowsCleared(int rows) {
+    }
+
+    /**
+     * Invoked when the falling piece, the upcoming pieces or the held piece change.
+     */
+    default void piecesChanged() {
+    }
+
+    /**
+     * Invoked when the game ends.
+     *
+     * @param score the final score
+     */
+    default void gameOver(int score) {
+    }
+}
@@ -0,0 +1,226 @@
+package game;
+
+import game.bot.Bot;
+import game.replay.ReplayWriter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A <code>GameLoop</code> instance runs a game on its own thread with a fixed timestep.
+ * The game advances by exactly 1 tick for every <code>NANOS_PER_TICK</code> nanoseconds of real time measured by
+ * <code>System.nanoTime()</code>, no matter how long rendering takes. If the loop falls behind, it catches up by running
+ * several ticks before the next frame is rendered.
+ * Other threads have to go through the loop's methods to interact with the game, the game and the renderer are only
+ * accessed while holding the loop's lock.
+ * Inputs are timestamped and queued without locking. Before each tick, the loop applies the inputs that occurred up to the
+ * end of the tick's time slice, so inputs are applied at the same tick no matter how late the loop runs.
+ */
+public class GameLoop implements Runnable {
+
+    public static final long NANOS_PER_TICK = GameState.NANOS_PER_SECOND / GameState.TICKS_PER_SECOND;
+
+    /**
+     * The maximum amount of ticks run before a frame is rendered.
+     * If the loop falls further behind (e.g. after the process was suspended), the remaining time is dropped instead of
+     * fast-forwarding the game.
+     */
+    private static final int MAX_TICKS_PER_FRAME = 10;
+
+    private static final int INPUT_QUEUE_CAPACITY = 256;
+
+    /**
+     * The time a bot may search for its move before each tick, a fraction of a tick, so the loop still catches up when it
+     * falls behind.
+     */
+    private static final long BOT_NANOS_PER_TICK = NANOS_PER_TICK / 2;
+
+    private final GameState game;
+    private final Runnable frameRenderer;
+    private final InputQueue inputs = new InputQueue(INPUT_QUEUE_CAPACITY);
+
+    /**
+     * The column the falling piece should move to before the next frame, <code>NO_TARGET_COLUMN</code> if there is none.
+     * Only the latest target set during a frame is kept.
+     */
+    private static final int NO_TARGET_COLUMN = -1;
+    private final AtomicInteger targetColumn = new AtomicInteger(NO_TARGET_COLUMN);
+
+    private ReplayWriter recorder;
+
+    /**
+     * The bot playing the game, <code>null</code> if the user plays it.
+     * The bot moves once for every piece, <code>botPlacedPieces</code> is the amount of placed pieces at its last move, and
+     * <code>botSearching</code> whether its search for the falling piece is already running.
+     */
+    private Bot bot;
+    private int botPlacedPieces = -1;
+    private boolean botSearching;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * Constructs a new <code>GameLoop</code> instance.
+     *
+     * @param game          the game to be advanced
+     * @param frameRenderer called on the loop's thread after the ticks of each frame, renders the game
+     */
+    public GameLoop(GameState game, Runnable frameRenderer) {
+        this.game = game;
+        this.frameRenderer = frameRenderer;
+    }
+
+    /**
+     * Records the game into the given replay writer: every input and piece movement is recorded with the tick it is
+     * applied at, along with periodic keyframes of the game's state, the recording is finished when the loop stops.
+     * Must be called before the loop is started.
+     *
+     * @param recorder the replay writer, <code>null</code> to stop recording
+     */
+    public synchronized void setRecorder(ReplayWriter recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Lets the given bot play the game in place of the user. The bot searches for its move on the loop's thread for a
+     * fraction of each tick after a piece spawns, and makes the move once its search is complete or before the piece would
+     * fall a row, so the ticks and frames keep their pace at any gravity. Its inputs are recorded like the user's. The inputs
+     * and target columns passed to the loop by other threads are dropped while a bot plays.
+     * Must be called before the loop is started.
+     *
+     * @param bot the bot, <code>null</code> to let the user play
+     */
+    public synchronized void setBot(Bot bot) {
+        this.bot = bot;
+    }
+
+    /**
+     * Starts the game and the loop's thread.
+     */
+    public synchronized void start() {
+        game.start();
+        running = true;
+        thread = new Thread(this, "Game loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the loop after the current frame.
+     * Can be called from any thread, including the loop's thread itself (e.g. from a <code>GameListener</code>).
+     */
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public void run() {
+        long previousTime = System.nanoTime();
+        long lag = 0;
+        while (running) {
+            long now = System.nanoTime();
+            lag += now - previousTime;
+            previousTime = now;
+
+            synchronized (this) {
+                int column = targetColumn.getAndSet(NO_TARGET_COLUMN);
+                if (column != NO_TARGET_COLUMN && bot == null) {
+                    // Only recorded if the piece moved, so hovering over the same column adds no replay events
+                    if (game.moveToColumn(column) && recorder != null) recorder.recordMoveToColumn(game.getTicks(), column);
+                }
+
+                int ticks = 0;
+                while (lag >= NANOS_PER_TICK && ticks < MAX_TICKS_PER_FRAME) {
+                    if (recorder != null) recorder.recordKeyframe(game);
+                    applyInputs(now - lag + NANOS_PER_TICK);
+                    if (bot != null) applyBotMove();
+                    game.tick();
+                    lag -= NANOS_PER_TICK;
+                    ticks++;
+                }
+                if (ticks == MAX_TICKS_PER_FRAME) lag = 0;
+                if (ticks > 0) frameRenderer.run();
+                if (recorder != null) recorder.flushIfDue();
+            }
+
+            long sleepTime = NANOS_PER_TICK - lag;
+            if (sleepTime > 0) LockSupport.parkNanos(sleepTime);
+        }
+        finishRecording();
+    }
+
+    /**
+     * Finishes the replay recording with the game's final tick and score, the replay is written in the background.
+     * A replay that can't be written is dropped, the game isn't affected.
+     */
+    private synchronized void finishRecording() {
+        if (recorder == null) return;
+        recorder.finish(game.getTicks(), game.getScore());
+        recorder = null;
+    }
+
+    /**
+     * Applies the queued inputs that occurred before the given time to the game.
+     *
+     * @param time the end of the current tick's time slice, in <code>System.nanoTime()</code> nanoseconds
+     */
+    private void applyInputs(long time) {
+        while (inputs.peekTimestamp() <= time) {
+            Input input = inputs.poll();
+            if (bot == null) applyRecordedInput(input);
+        }
+    }
+
+    /**
+     * Continues the bot's search for the move of the piece that spawned since its last move, and makes the move once the
+     * search is complete or the piece would fall during the next tick. The piece doesn't move until then, since the user's
+     * inputs are dropped.
+     */
+    private void applyBotMove() {
+        if (!game.isPieceActive() || game.getPlacedPieces() == botPlacedPieces) return;
+        if (!botSearching) {
+            bot.startSearch(game);
+            botSearching = true;
+        }
+        if (!bot.search(System.nanoTime() + BOT_NANOS_PER_TICK) && game.getTicksUntilFall() > 1) return;
+        botSearching = false;
+        botPlacedPieces = game.getPlacedPieces();
+        bot.play(game, bot.getSearchedPlacement(), this::applyRecordedInput);
+    }
+
+    /**
+     * Records the given input and applies it to the game.
+     *
+     * @param input the action to be carried out
+     */
+    private void applyRecordedInput(Input input) {
+        if (recorder != null) recorder.recordInput(game.getTicks(), input);
+        game.applyInput(input);
+    }
+
+    /**
+     * Queues the given player action, it is carried out on the loop's thread before the next tick.
+     * Can be called from any thread without blocking. If too many inputs are waiting, the action is dropped.
+     *
+     * @param input the action to be carried out
+     */
+    public void applyInput(Input input) {
+        inputs.offer(input, System.nanoTime());
+    }
+
+    /**
+     * Sets the column the falling piece should move to, the piece is moved on the loop's thread before the next frame.
+     * Can be called from any thread without blocking. If it's called several times during a frame, only the last column is
+     * used, so the piece makes at most 1 movement per frame.
+     *
+     * @param column the column the piece should move to
+     */
+    public void moveToColumn(int column) {
+        targetColumn.set(column);
+    }
+
+    public GameState getGame() {
+        return game;
+    }
+}
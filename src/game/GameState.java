@@ -2,299 +2,862 @@ package game;
 
 import game.pieces.Piece;
 import game.pieces.PieceOrder;
-import renderer.GameJFrame;
-import renderer.Renderer;
-import util.InputHandler;
-
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.awt.event.KeyEvent;
-import java.io.*;
-import java.util.HashSet;
-import java.util.TreeSet;
+import game.pieces.PieceShape;
+import game.pieces.PieceType;
+import game.pieces.Randomizer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * A <code>GameState</code> instance serves as a way to manage and run the game.
- * A static instance of <code>GameState</code> is used for the game.
+ * The game has no dependency on a window or timers, it only advances when <code>tick()</code> or <code>applyInput()</code> is called.
+ * Any number of instances can run at the same time, the events of each game are reported to its <code>GameListener</code>.
  */
-public class GameState implements ActionListener {
+public class GameState {
 
     public static final int TILE_COUNT_X = 10;
     public static final int TILE_COUNT_Y = 20;
     public static final int PIECE_COUNT = 7;
 
-    private static GameState game;
+    /**
+     * The amount of ticks in one second of the game, i.e. one tick is one frame of a 60 Hz fixed timestep.
+     */
+    public static final int TICKS_PER_SECOND = 60;
+
+    public static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    /**
+     * The amount of ticks between two blinks of the filled rows.
+     */
+    public static final int ROW_CLEAR_BLINK_DELAY = 6;
+
+    /**
+     * The amount of times the filled rows blink before they get removed.
+     */
+    public static final int ROW_CLEAR_BLINK_COUNT = 4;
+
+    /**
+     * The amount of ticks the piece can stay on the ground before it gets placed down.
+     */
+    public static final int LOCK_DELAY = 30;
+
+    /**
+     * The amount of times moving or rotating the piece on the ground can restart the lock delay.
+     * The count is reset whenever the piece falls below the lowest row it has reached.
+     */
+    public static final int MAX_LOCK_RESETS = 15;
+
+    /**
+     * The amount of ticks between placing down a piece and spawning the next one (ARE).
+     */
+    public static final int ENTRY_DELAY = 6;
+
+    /**
+     * The amount of times the gravity is sped up while soft dropping.
+     */
+    public static final int SOFT_DROP_FACTOR = 20;
 
-    private Timer gameLengthTimer;
-    private Timer gravityTimer;
+    /**
+     * The default amount of ticks a direction has to be held before the piece starts moving automatically (DAS).
+     */
+    public static final int DEFAULT_AUTO_REPEAT_DELAY = 10;
+
+    /**
+     * The default amount of ticks between the automatic moves of the piece (ARR).
+     */
+    public static final int DEFAULT_AUTO_REPEAT_RATE = 2;
+
+    /**
+     * The most bytes <code>writeState()</code> writes.
+     */
+    public static final int MAX_STATE_SIZE = 512;
+
+    /**
+     * The version of the state written by <code>writeState()</code>, stored in snapshots. Changed whenever the state's
+     * layout changes, snapshots of other versions can't be restored.
+     */
+    public static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * The most bytes <code>writeSnapshot()</code> writes: the magic number, the version and the state.
+     */
+    public static final int MAX_SNAPSHOT_SIZE = Integer.BYTES + 1 + MAX_STATE_SIZE;
+
+    private static final int SNAPSHOT_MAGIC = 0x54534E50;
+
+    private static final int SOFT_DROPPING = 1;
+    private static final int LEFT_HELD = 1 << 1;
+    private static final int RIGHT_HELD = 1 << 2;
+    private static final int HOLD_USED = 1 << 3;
+    private static final int GAME_OVER = 1 << 4;
+
+    private static final GameListener NO_LISTENER = new GameListener() {
+    };
+
+    private final GameListener listener;
 
     private PieceOrder pieceOrder;
     private Piece fallingPiece;
 
-    private Tile[][] tiles;
+    private Board board;
     private Level level;
     private int score;
     private int time;
-    private int highscore;
+    private long ticks;
+
+    private int gravityProgress;
+    private boolean softDropping;
+
+    private int autoRepeatDelay = DEFAULT_AUTO_REPEAT_DELAY;
+    private int autoRepeatRate = DEFAULT_AUTO_REPEAT_RATE;
+    private boolean leftHeld;
+    private boolean rightHeld;
+    private int moveDirection;
+    private int autoRepeatCounter;
+    private int autoRepeatRateCounter;
+
+    private int lockCounter;
+    private int lockResets;
+    private int lowestRow;
+    private int entryCounter;
+
+    private int clearingRows;
+    private int clearCounter;
+
+    private boolean holdUsed;
+
+    private boolean gameOver;
+    private int placedPieces;
 
     /**
-     * Creates a new, static <code>GameState</code> instance.
+     * Constructs a new <code>GameState</code> instance and assigns its initial values.
+     * The events of the game are not reported anywhere.
      */
-    public static void newGame() {
-        game = new GameState();
+    public GameState() {
+        this(NO_LISTENER);
     }
 
     /**
-     * Starts the game.
-     * The game timers start when this method is called, so it is important to show the game screen as soon as this method is called.
+     * Constructs a new <code>GameState</code> instance with a random piece order and assigns its initial values.
+     *
+     * @param listener the listener the events of the game are reported to
      */
-    public void start() {
-        this.gameLengthTimer = new Timer(1000, this);
-        this.gravityTimer = new Timer(level.getGravityDelay(), this);
-        this.gravityTimer.setInitialDelay(0);
-
-        pieceOrder = new PieceOrder();
-        nextPiece();
-
-        GameJFrame.getWindow().updateUpcomingPieceLabels();
+    public GameState(GameListener listener) {
+        this(listener, new PieceOrder());
+    }
 
-        GameJFrame.getWindow().updateLevel(level.getLevel());
-        GameJFrame.getWindow().updateScore(score);
-        GameJFrame.getWindow().updateHighscore(highscore);
-        GameJFrame.getWindow().updateTime(time);
+    /**
+     * Constructs a new <code>GameState</code> instance and assigns its initial values.
+     * Games constructed with the same seed get the same order of pieces.
+     *
+     * @param listener the listener the events of the game are reported to
+     * @param seed     the seed of the piece order
+     */
+    public GameState(GameListener listener, long seed) {
+        this(listener, new PieceOrder(seed));
+    }
 
-        gameLengthTimer.start();
-        gravityTimer.start();
+    /**
+     * Constructs a new <code>GameState</code> instance and assigns its initial values.
+     * The order of the pieces is generated by the given randomizer, e.g. a 14-bag or a history randomizer.
+     *
+     * @param listener   the listener the events of the game are reported to
+     * @param randomizer the randomizer of the piece order, used only by this game
+     */
+    public GameState(GameListener listener, Randomizer randomizer) {
+        this(listener, new PieceOrder(randomizer));
     }
 
     /**
      * Constructs a new <code>GameState</code> instance and assigns its initial values.
+     *
+     * @param listener   the listener the events of the game are reported to
+     * @param pieceOrder the order of the pieces
      */
-    public GameState() {
+    private GameState(GameListener listener, PieceOrder pieceOrder) {
+        this.listener = listener;
         this.level = new Level();
         this.score = 0;
         this.time = 0;
+        this.ticks = 0;
+        this.board = new Board();
+        this.pieceOrder = pieceOrder;
+    }
 
-        try {
-            File highscoreFile = new File("save/highscore.txt");
-            highscoreFile.getParentFile().mkdirs();
-            BufferedReader reader = new BufferedReader(new FileReader(highscoreFile));
-            this.highscore = Integer.parseInt(reader.readLine());
-        } catch (FileNotFoundException e) {
-            this.highscore = 0;
-        } catch (NumberFormatException e) {
-            this.highscore = 0;
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    /**
+     * Starts the game.
+     * Spawns the first piece and reports the initial values of the game to the listener.
+     */
+    public void start() {
+        nextPiece();
+
+        listener.levelChanged(level.getLevel());
+        listener.scoreChanged(score);
+        listener.timeChanged(time);
+    }
+
+    /**
+     * Advances the game by 1 tick.
+     * Keeps track of the time, makes the falling piece fall, places it down once the lock delay runs out, waits for the entry
+     * delay and plays the row clear animation.
+     */
+    public void tick() {
+        if (gameOver || fallingPiece == null) return;
+
+        ticks++;
+        if (ticks % TICKS_PER_SECOND == 0) {
+            time++;
+            listener.timeChanged(time);
         }
 
-        this.tiles = new Tile[TILE_COUNT_X][TILE_COUNT_Y];
-        for (int i = 0; i < TILE_COUNT_X; i++) {
-            for (int j = 0; j < TILE_COUNT_Y; j++) {
-                this.tiles[i][j] = new Tile();
+        // The auto repeat delay keeps charging while the game waits, so the next piece can start moving right away
+        if (moveDirection != 0 && autoRepeatCounter < autoRepeatDelay) autoRepeatCounter++;
+
+        if (clearingRows != 0) {
+            clearCounter++;
+            if (clearCounter % ROW_CLEAR_BLINK_DELAY != 0) return;
+            if (clearCounter >= ROW_CLEAR_BLINK_DELAY * ROW_CLEAR_BLINK_COUNT) {
+                clearFilledRows();
+            } else {
+                board.toggleMarkedRows(clearingRows);
             }
+            return;
+        }
+
+        if (entryCounter > 0) {
+            entryCounter--;
+            if (entryCounter == 0) nextPiece();
+            return;
         }
 
+        applyAutoRepeat();
+        applyGravity();
+        if (fallingPiece.getGravityCount() > 0) return;
+        lockCounter++;
+        if (lockCounter >= LOCK_DELAY) placePiece();
     }
 
     /**
-     * Places down the currently falling piece.
-     * If the rows that the piece lands on are filled, the rows get cleared.
+     * Adds the gravity of the current level to the falling piece and lowers it by every whole row accumulated.
+     * The gravity is stored in fractions of a row, so gravities lower than 1 row per tick make the piece fall once every
+     * few ticks, while higher gravities make it fall multiple rows in a single tick.
+     * For each row the piece falls while soft dropping, the user gets 1 additional point.
      */
-    private void placePiece() {
-        for (Point tile : fallingPiece.getTiles()) {
-            this.tiles[(int) tile.getX()][(int) tile.getY()].setOccupied(true);
-            this.tiles[(int) tile.getX()][(int) tile.getY()].setColor(fallingPiece.getColor());
-            if (tile.y <= 1) {
-                gameOver();
+    private void applyGravity() {
+        gravityProgress += getGravity();
+        int rowsFallen = 0;
+        while (gravityProgress >= Level.GRAVITY_UNIT) {
+            gravityProgress -= Level.GRAVITY_UNIT;
+            if (!fallingPiece.fall()) {
+                gravityProgress = 0;
+                break;
+            }
+            rowsFallen++;
+        }
+        if (rowsFallen == 0) return;
+
+        pieceFell();
+        if (softDropping) {
+            score += rowsFallen;
+            listener.scoreChanged(score);
+        }
+    }
+
+    /**
+     * Restarts the lock delay after the piece fell.
+     * If the piece reached a new lowest row, the amount of lock delay resets is restored.
+     */
+    private void pieceFell() {
+        lockCounter = 0;
+        if (fallingPiece.getY() > lowestRow) {
+            lowestRow = fallingPiece.getY();
+            lockResets = 0;
+        }
+    }
+
+    /**
+     * Carries out the given player action.
+     * Holding and releasing directions and releasing the soft drop are always tracked, other inputs are ignored while the filled
+     * rows are being cleared and during the entry delay.
+     *
+     * @param input the action to be carried out
+     */
+    public void applyInput(Input input) {
+        if (gameOver || fallingPiece == null) return;
+        switch (input) {
+            case SOFT_DROP_STOP -> {
+                softDropping = false;
                 return;
             }
+            case MOVE_LEFT_START -> {
+                leftHeld = true;
+                startAutoRepeat(-1);
+                return;
+            }
+            case MOVE_RIGHT_START -> {
+                rightHeld = true;
+                startAutoRepeat(1);
+                return;
+            }
+            case MOVE_LEFT_STOP -> {
+                leftHeld = false;
+                stopAutoRepeat();
+                return;
+            }
+            case MOVE_RIGHT_STOP -> {
+                rightHeld = false;
+                stopAutoRepeat();
+                return;
+            }
+        }
+        if (clearingRows != 0 || entryCounter > 0) return;
+
+        switch (input) {
+            case MOVE_LEFT -> pieceMoved(fallingPiece.move(board, -1));
+            case MOVE_RIGHT -> pieceMoved(fallingPiece.move(board, 1));
+            case ROTATE_CLOCKWISE -> pieceMoved(fallingPiece.rotate(board, 1));
+            case ROTATE_COUNTERCLOCKWISE -> pieceMoved(fallingPiece.rotate(board, -1));
+            case SOFT_DROP_START -> softDropping = true;
+            case HARD_DROP -> hardDrop();
+            case HOLD -> {
+                if (!holdUsed) hold();
+            }
+        }
+    }
+
+    /**
+     * Moves the falling piece until its center reaches the given column or until it can't move any further.
+     * The piece moves as a single input, i.e. it can restart the lock delay at most once.
+     * Ignored while the filled rows are being cleared and during the entry delay.
+     *
+     * @param column the column the piece should move to
+     * @return whether the piece moved
+     */
+    public boolean moveToColumn(int column) {
+        if (gameOver || fallingPiece == null || clearingRows != 0 || entryCounter > 0) return false;
+        int moveAmount = column - fallingPiece.getCenterX();
+        if (moveAmount == 0) return false;
+        boolean moved = fallingPiece.move(board, moveAmount);
+        pieceMoved(moved);
+        return moved;
+    }
+
+    /**
+     * Starts holding the given direction, the most recently pressed direction is the one repeated.
+     * The piece moves once right away, unless the game is waiting, and the auto repeat delay starts charging.
+     *
+     * @param direction the direction, -1 for left and 1 for right
+     */
+    private void startAutoRepeat(int direction) {
+        moveDirection = direction;
+        autoRepeatCounter = 0;
+        autoRepeatRateCounter = autoRepeatRate;
+        if (clearingRows != 0 || entryCounter > 0) return;
+        pieceMoved(fallingPiece.move(board, direction));
+    }
+
+    /**
+     * Stops repeating the released direction.
+     * If the other direction is still held, it is repeated instead after the auto repeat delay charges again.
+     */
+    private void stopAutoRepeat() {
+        int direction = rightHeld ? 1 : (leftHeld ? -1 : 0);
+        if (direction == moveDirection) return;
+        moveDirection = direction;
+        autoRepeatCounter = 0;
+        autoRepeatRateCounter = autoRepeatRate;
+    }
+
+    /**
+     * Moves the piece in the held direction once the auto repeat delay has charged, once every <code>autoRepeatRate</code>
+     * ticks. With an auto repeat rate of 0, the piece moves all the way to the wall.
+     */
+    private void applyAutoRepeat() {
+        if (moveDirection == 0 || autoRepeatCounter < autoRepeatDelay) return;
+        if (autoRepeatRate == 0) {
+            while (fallingPiece.move(board, moveDirection)) {
+                pieceMoved(true);
+            }
+            return;
+        }
+        autoRepeatRateCounter++;
+        if (autoRepeatRateCounter < autoRepeatRate) return;
+        autoRepeatRateCounter = 0;
+        pieceMoved(fallingPiece.move(board, moveDirection));
+    }
+
+    /**
+     * Sets the timing of the automatic moves while a direction is held.
+     *
+     * @param delay the amount of ticks a direction has to be held before the piece starts moving automatically (DAS)
+     * @param rate  the amount of ticks between the automatic moves (ARR), 0 moves the piece to the wall instantly
+     * @throws IllegalArgumentException if the delay or the rate is negative
+     */
+    public void setAutoRepeat(int delay, int rate) throws IllegalArgumentException {
+        if (delay < 0 || rate < 0) throw new IllegalArgumentException("Auto repeat timing can't be negative!");
+        autoRepeatDelay = delay;
+        autoRepeatRate = rate;
+    }
+
+    /**
+     * Restarts the lock delay if the piece was moved or rotated while its lock delay was running.
+     * The lock delay can only be restarted <code>MAX_LOCK_RESETS</code> times before the piece falls to a new lowest row.
+     *
+     * @param moved whether the piece moved
+     */
+    private void pieceMoved(boolean moved) {
+        if (!moved || lockCounter == 0 || lockResets >= MAX_LOCK_RESETS) return;
+        lockCounter = 0;
+        lockResets++;
+    }
+
+    /**
+     * Places down the currently falling piece.
+     * If the rows that the piece lands on are filled, the row clear animation starts, otherwise the next piece spawns after the
+     * entry delay.
+     */
+    private void placePiece() {
+        placedPieces++;
+        PieceShape shape = fallingPiece.getShape();
+        int rotation = fallingPiece.getRotation();
+        int top = fallingPiece.getY() + shape.getMinY(rotation);
+        int bottom = fallingPiece.getY() + shape.getMaxY(rotation);
+        for (int y = top; y <= bottom; y++) {
+            board.fillRow(y, fallingPiece.getRowMask(y), fallingPiece.getId());
+        }
+        if (top <= 1) {
+            gameOver();
+            return;
         }
 
-        TreeSet<Integer> rowsFilled = getFilledRows();
-        if (rowsFilled.size() > 0) {
-            Renderer.playRowClearAnimation(rowsFilled);
-            level.rowCleared(rowsFilled.size());
+        int rowsFilled = board.getFilledRows(top, bottom - top + 1);
+        if (rowsFilled != 0) {
+            clearingRows = rowsFilled;
+            clearCounter = 0;
+            board.toggleMarkedRows(clearingRows);
+            if (level.rowCleared(Integer.bitCount(rowsFilled))) listener.levelChanged(level.getLevel());
         } else {
-            nextPiece();
+            entryCounter = ENTRY_DELAY;
         }
     }
 
     /**
-     * Ends the game, stops the timers and returns the user to the menu screen after showing them their results.
+     * Ends the game and reports the final score to the listener.
      */
     private void gameOver() {
-        gravityTimer.stop();
-        gameLengthTimer.stop();
-        Renderer.render();
-        String message = "Score: " + score + "\nHighscore: " + highscore;
-        if (score > highscore) {
-            message = message + "\nNew highscore!";
-            try {
-                BufferedWriter writer = new BufferedWriter(new FileWriter("save/highscore.txt"));
-                writer.write(String.valueOf(score));
-                writer.close();
-            } catch (IOException e) {
-                message = message + "\nError: Unable to save new highscore";
-            }
-        }
-        JOptionPane.showMessageDialog(null, message, "Game Over", JOptionPane.PLAIN_MESSAGE);
-        GameJFrame.getWindow().backToMenu();
+        gameOver = true;
+        listener.gameOver(score);
     }
 
     /**
-     * Clears the passed in rows, moves the tiles above the passed in rows down and continues the game after being paused due to the row clear animation.
-     * @param rows the cleared rows
+     * Clears the filled rows, moves the tiles above them down and continues the game after being paused due to the row clear animation.
      */
-    public void clearFilledRows(TreeSet<Integer> rows) {
+    private void clearFilledRows() {
+        int rows = clearingRows;
+        clearingRows = 0;
+
         int scoreReceived = 0;
-        switch (rows.size()) {
+        switch (Integer.bitCount(rows)) {
             case 1 -> scoreReceived = 100;
             case 2 -> scoreReceived = 300;
             case 3 -> scoreReceived = 500;
             case 4 -> scoreReceived = 800;
         }
         score += scoreReceived * level.getLevel();
-        GameJFrame.getWindow().updateScore(score);
-
-        for (int row : rows) {
-            for (int i = row; i >= rows.size(); i--) {
-                for (int j = 0; j < TILE_COUNT_X; j++) {
-                    tiles[j][i].setOccupied(tiles[j][i - 1].isOccupied());
-                    tiles[j][i].setColor(tiles[j][i - 1].getColor());
-                }
-            }
-        }
+        listener.scoreChanged(score);
+
+        board.clearRows(rows);
+        listener.rowsCleared(rows);
         nextPiece();
-        startGravityTimer();
     }
 
     /**
-     * Swaps the currently falling piece with the next piece.
-     * Updates the upcoming piece labels.
+     * Respawns the falling piece as the next piece.
      */
     private void nextPiece() {
-        fallingPiece = pieceOrder.getNextPiece();
+        PieceType type = pieceOrder.getNextPiece();
         pieceOrder.removePiece();
-        GameJFrame.getWindow().updateUpcomingPieceLabels();
+        if (fallingPiece == null) {
+            fallingPiece = new Piece(type);
+        } else {
+            fallingPiece.spawn(type);
+        }
+        holdUsed = false;
+        pieceSpawned();
+        listener.piecesChanged();
+    }
+
+    /**
+     * Prepares the gravity and the lock delay for a newly spawned piece.
+     */
+    private void pieceSpawned() {
+        fallingPiece.calculateGravityCount(board);
+        gravityProgress = 0;
+        lockCounter = 0;
+        lockResets = 0;
+        lowestRow = fallingPiece.getY();
+    }
+
+    /**
+     * Creates an independent copy of the game, which continues exactly like this game would, given the same inputs.
+     * The events of the copy are not reported anywhere.
+     *
+     * @return the copy
+     */
+    public GameState copy() {
+        GameState copy = new GameState(NO_LISTENER, pieceOrder.copy());
+        copyInto(copy);
+        return copy;
+    }
+
+    /**
+     * Copies the whole state of this game into the given game, e.g. to explore a move on a scratch game and reset it for the
+     * next one. Doesn't allocate anything once the target has had a falling piece, and doesn't report anything to the
+     * target's listener.
+     *
+     * @param target a game with the same kind of randomizer, created by <code>copy()</code> or with the same constructor
+     */
+    public void copyInto(GameState target) {
+        target.board.copyFrom(board);
+        pieceOrder.copyInto(target.pieceOrder);
+        if (fallingPiece == null) {
+            target.fallingPiece = null;
+        } else {
+            if (target.fallingPiece == null) target.fallingPiece = new Piece(fallingPiece.getType());
+            target.fallingPiece.restore(fallingPiece.getType(), fallingPiece.getX(), fallingPiece.getY(), fallingPiece.getRotation(),
+                    fallingPiece.getGravityCount());
+        }
+        target.level.restore(level.getLevel(), level.getRowsCleared());
+        target.score = score;
+        target.time = time;
+        target.ticks = ticks;
+        target.gravityProgress = gravityProgress;
+        target.softDropping = softDropping;
+        target.autoRepeatDelay = autoRepeatDelay;
+        target.autoRepeatRate = autoRepeatRate;
+        target.leftHeld = leftHeld;
+        target.rightHeld = rightHeld;
+        target.moveDirection = moveDirection;
+        target.autoRepeatCounter = autoRepeatCounter;
+        target.autoRepeatRateCounter = autoRepeatRateCounter;
+        target.lockCounter = lockCounter;
+        target.lockResets = lockResets;
+        target.lowestRow = lowestRow;
+        target.entryCounter = entryCounter;
+        target.clearingRows = clearingRows;
+        target.clearCounter = clearCounter;
+        target.holdUsed = holdUsed;
+        target.gameOver = gameOver;
+        target.placedPieces = placedPieces;
+    }
+
+    /**
+     * Writes a snapshot of the game, e.g. to suspend it: a magic number and <code>SNAPSHOT_VERSION</code>, followed by the
+     * state written by <code>writeState()</code>.
+     *
+     * @param buffer the buffer the snapshot is written to, with at least <code>MAX_SNAPSHOT_SIZE</code> bytes remaining
+     */
+    public void writeSnapshot(ByteBuffer buffer) {
+        buffer.putInt(SNAPSHOT_MAGIC);
+        buffer.put((byte) SNAPSHOT_VERSION);
+        writeState(buffer);
+    }
+
+    /**
+     * Returns a snapshot of the game as a byte array.
+     *
+     * @return the snapshot
+     */
+    public byte[] toSnapshot() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_SNAPSHOT_SIZE);
+        writeSnapshot(buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
     }
 
     /**
-     * Returns the rows filled by the currently falling piece.
-     * Must be called after the piece is placed down but before the piece is swapped with the next one.
-     * @return the filled rows
+     * Restores a snapshot written by <code>writeSnapshot()</code> of a game with the same kind of randomizer, e.g. to resume
+     * a suspended game, and reports the restored values to the listener.
+     * The snapshot is decoded into a copy of the game first, the game itself is only overwritten once the whole snapshot was
+     * read, so a truncated or damaged snapshot leaves it unchanged.
+     *
+     * @param buffer the buffer the snapshot is read from
+     * @throws IllegalArgumentException if the buffer doesn't start with a snapshot of the current version, or if the snapshot is
+     *                                  truncated or damaged
      */
-    private TreeSet<Integer> getFilledRows() {
-        HashSet<Integer> rowsChecked = new HashSet<>();
-        TreeSet<Integer> rowsFilled = new TreeSet<>();
-        for (Point piece : fallingPiece.getTiles()) {
-            if (rowsChecked.contains(piece.getY())) continue;
-            if (isRowFilled(piece.y)) rowsFilled.add(piece.y);
-            rowsChecked.add((int) piece.getY());
+    public void readSnapshot(ByteBuffer buffer) throws IllegalArgumentException {
+        if (buffer.remaining() < Integer.BYTES + 1 || buffer.getInt() != SNAPSHOT_MAGIC) throw new IllegalArgumentException("Not a game snapshot!");
+        int version = buffer.get();
+        if (version != SNAPSHOT_VERSION) throw new IllegalArgumentException("Unsupported snapshot version " + version + "!");
+        GameState restored = copy();
+        try {
+            restored.readState(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Game snapshot truncated or damaged!", e);
         }
-        return rowsFilled;
+        restored.copyInto(this);
+        reportRestoredValues();
+    }
+
+    /**
+     * Restores a snapshot created by <code>toSnapshot()</code>, see <code>readSnapshot(ByteBuffer)</code>.
+     *
+     * @param snapshot the snapshot
+     * @throws IllegalArgumentException if the array isn't a snapshot of the current version
+     */
+    public void readSnapshot(byte[] snapshot) throws IllegalArgumentException {
+        readSnapshot(ByteBuffer.wrap(snapshot));
     }
 
     /**
-     * Returns whether the row is filled.
-     * @param row the row
-     * @return whether the row is filled
+     * Writes the whole state of the game: the board, the falling piece, the held and upcoming pieces with the randomizer's
+     * state, the score, the level and all timers and counters. The time is derived from the tick count.
+     * A game restored from the state continues exactly like this game would, given the same inputs.
+     *
+     * @param buffer the buffer the state is written to, with at least <code>MAX_STATE_SIZE</code> bytes remaining
      */
-    private boolean isRowFilled(int row) {
-        for (int i = 0; i < TILE_COUNT_X; i++) {
-            if (!tiles[i][row].isOccupied()) return false;
+    public void writeState(ByteBuffer buffer) {
+        buffer.putLong(ticks);
+        buffer.putInt(score);
+        buffer.putInt(placedPieces);
+        buffer.putShort((short) level.getLevel());
+        buffer.put((byte) level.getRowsCleared());
+
+        int flags = 0;
+        if (softDropping) flags |= SOFT_DROPPING;
+        if (leftHeld) flags |= LEFT_HELD;
+        if (rightHeld) flags |= RIGHT_HELD;
+        if (holdUsed) flags |= HOLD_USED;
+        if (gameOver) flags |= GAME_OVER;
+        buffer.put((byte) flags);
+        buffer.putInt(gravityProgress);
+        buffer.putInt(autoRepeatDelay);
+        buffer.putInt(autoRepeatRate);
+        buffer.put((byte) moveDirection);
+        buffer.putInt(autoRepeatCounter);
+        buffer.putInt(autoRepeatRateCounter);
+        buffer.put((byte) lockCounter);
+        buffer.put((byte) lockResets);
+        buffer.put((byte) lowestRow);
+        buffer.put((byte) entryCounter);
+        buffer.putInt(clearingRows);
+        buffer.put((byte) clearCounter);
+
+        if (fallingPiece == null) {
+            buffer.put((byte) -1);
+        } else {
+            buffer.put((byte) fallingPiece.getId());
+            buffer.put((byte) fallingPiece.getX());
+            buffer.put((byte) fallingPiece.getY());
+            buffer.put((byte) fallingPiece.getRotation());
+            buffer.put((byte) fallingPiece.getGravityCount());
         }
-        return true;
+        board.writeState(buffer);
+        pieceOrder.writeState(buffer);
     }
 
-    public static GameState getGame() {
-        return game;
+    /**
+     * Restores the state written by <code>writeState()</code> of a game with the same kind of randomizer and reports the
+     * restored values to the listener.
+     *
+     * @param buffer the buffer the state is read from
+     */
+    public void readState(ByteBuffer buffer) {
+        ticks = buffer.getLong();
+        time = (int) (ticks / TICKS_PER_SECOND);
+        score = buffer.getInt();
+        placedPieces = buffer.getInt();
+        int levelNumber = buffer.getShort();
+        level.restore(levelNumber, buffer.get());
+
+        int flags = buffer.get();
+        softDropping = (flags & SOFT_DROPPING) != 0;
+        leftHeld = (flags & LEFT_HELD) != 0;
+        rightHeld = (flags & RIGHT_HELD) != 0;
+        holdUsed = (flags & HOLD_USED) != 0;
+        gameOver = (flags & GAME_OVER) != 0;
+        gravityProgress = buffer.getInt();
+        autoRepeatDelay = buffer.getInt();
+        autoRepeatRate = buffer.getInt();
+        moveDirection = buffer.get();
+        autoRepeatCounter = buffer.getInt();
+        autoRepeatRateCounter = buffer.getInt();
+        lockCounter = buffer.get();
+        lockResets = buffer.get();
+        lowestRow = buffer.get();
+        entryCounter = buffer.get();
+        clearingRows = buffer.getInt();
+        clearCounter = buffer.get();
+
+        int pieceId = buffer.get();
+        if (pieceId < 0) {
+            fallingPiece = null;
+        } else {
+            PieceType type = PieceType.fromId(pieceId);
+            if (fallingPiece == null) fallingPiece = new Piece(type);
+            fallingPiece.restore(type, buffer.get(), buffer.get(), buffer.get(), buffer.get());
+        }
+        board.readState(buffer);
+        pieceOrder.readState(buffer);
+        reportRestoredValues();
     }
 
-    public Piece getFallingPiece() {
-        return fallingPiece;
+    /**
+     * Reports the values of a restored game to the listener.
+     */
+    private void reportRestoredValues() {
+        listener.levelChanged(level.getLevel());
+        listener.scoreChanged(score);
+        listener.timeChanged(time);
+        listener.piecesChanged();
     }
 
-    public Tile[][] getTiles() {
-        return tiles;
+    public Piece getFallingPiece() {
+        return fallingPiece;
     }
 
-    public void setGravityTimerDelay(int delay) {
-        this.gravityTimer.setDelay(delay);
+    public Board getBoard() {
+        return board;
     }
 
     public PieceOrder getPieceOrder() {
         return pieceOrder;
     }
 
+    public int getScore() {
+        return score;
+    }
+
     /**
-     * Speeds the gravity timer up to 20 times its normal speed.
-     * Called when the user presses the soft drop button.
+     * Returns the amount of ticks the game has been advanced by.
+     *
+     * @return the tick count
      */
-    public void softDrop() {
-        gravityTimer.restart();
-        gravityTimer.setDelay(level.getGravityDelay() / 20);
+    public long getTicks() {
+        return ticks;
+    }
+
+    public int getAutoRepeatDelay() {
+        return autoRepeatDelay;
+    }
+
+    public int getAutoRepeatRate() {
+        return autoRepeatRate;
+    }
+
+    public int getLevel() {
+        return level.getLevel();
     }
 
     /**
-     * Resets the gravity timer to its normal speed.
+     * Returns the amount of rows cleared during the game.
+     *
+     * @return the amount of cleared rows
      */
-    public void resetGravityTimerDelay() {
-        gravityTimer.restart();
-        gravityTimer.setDelay(level.getGravityDelay());
+    public int getRowsCleared() {
+        return (level.getLevel() - 1) * 10 + level.getRowsCleared();
+    }
+
+    public int getTime() {
+        return time;
     }
 
     /**
-     * Makes the piece fall down immediately.
-     * For each cell the piece goes through, the user gets 2 additional points.
+     * Returns the time elapsed in the game with sub-millisecond precision.
+     * The time is derived from the amount of ticks, so it doesn't drift no matter how long the game runs.
+     *
+     * @return the elapsed time in nanoseconds
      */
-    public void hardDrop() {
-        while (getFallingPiece().gravity()) {
-            if (!fallingPiece.isPlaceDelay()) score += 2;
-        }
-        GameJFrame.getWindow().updateScore(score);
-        gravityTimer.restart();
+    public long getTimeNanos() {
+        return ticks * NANOS_PER_SECOND / TICKS_PER_SECOND;
     }
 
     /**
-     * Stops the gravity timer.
+     * Returns whether the falling piece is in play, i.e. whether the game is neither clearing rows nor waiting for the entry delay.
+     *
+     * @return whether the falling piece is in play
      */
-    public void stopGravityTimer() {
-        gravityTimer.stop();
+    public boolean isPieceActive() {
+        return clearingRows == 0 && entryCounter == 0;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
     }
 
     /**
-     * Starts the gravity timer.
+     * Returns whether the hold was already used for the falling piece, i.e. whether <code>Input.HOLD</code> is ignored until
+     * the next piece spawns.
+     *
+     * @return whether the hold was used
      */
-    public void startGravityTimer() {
-        gravityTimer.start();
+    public boolean isHoldUsed() {
+        return holdUsed;
     }
 
     /**
-     * Puts the currently falling piece into the "hold" position, replaces it with the held piece and updates the upcoming piece labels.
+     * Returns the amount of pieces that were placed down during the game.
+     *
+     * @return the amount of placed pieces
      */
-    public void hold() {
-        fallingPiece = pieceOrder.hold(fallingPiece);
-        GameJFrame.getWindow().updateUpcomingPieceLabels();
-        gravityTimer.restart();
+    public int getPlacedPieces() {
+        return placedPieces;
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        if (e.getSource() == gameLengthTimer) {
-            time++;
-            GameJFrame.getWindow().updateTime(time);
-        } else if (e.getSource() == gravityTimer) {
-            boolean gravity = getFallingPiece().gravity();
-            if (!gravity) placePiece();
-            Renderer.render();
-            if (!gravity) return;
-            if (InputHandler.getKeyPressed(KeyEvent.VK_DOWN) || InputHandler.getKeyPressed(KeyEvent.VK_S) && !fallingPiece.isPlaceDelay()) {
-                score++;
-                GameJFrame.getWindow().updateScore(score);
-            }
-        }
+    /**
+     * Returns the time it takes the falling piece to fall 1 row on the current level without soft dropping, based on the
+     * gravity per tick, so it's less than a tick at high gravities (e.g. 1/20 of a tick at 20G).
+     *
+     * @return the gravity delay in nanoseconds
+     */
+    public long getGravityDelayNanos() {
+        return NANOS_PER_SECOND * Level.GRAVITY_UNIT / ((long) level.getGravity() * TICKS_PER_SECOND);
+    }
+
+    /**
+     * Returns the amount of ticks until the falling piece falls a row, counting the tick it falls during, e.g. 1 if it falls
+     * during the next tick, which is always the case at 20G. A piece that can't fall is treated as falling during the next
+     * tick, since it starts locking.
+     *
+     * @return the amount of ticks, at least 1
+     */
+    public int getTicksUntilFall() {
+        if (fallingPiece == null || fallingPiece.getGravityCount() == 0) return 1;
+        int gravity = getGravity();
+        return Math.max(1, (Level.GRAVITY_UNIT - gravityProgress + gravity - 1) / gravity);
+    }
+
+    /**
+     * Returns the distance the piece falls in a single tick, in fractions of a row (see <code>Level.GRAVITY_UNIT</code>).
+     * While soft dropping, the gravity is 20 times faster.
+     *
+     * @return the gravity per tick
+     */
+    private int getGravity() {
+        int gravity = level.getGravity();
+        if (softDropping) gravity = (int) Math.min((long) gravity * SOFT_DROP_FACTOR, Level.MAX_GRAVITY);
+        return gravity;
+    }
+
+    /**
+     * Makes the piece fall down and places it down immediately.
+     * For each cell the piece goes through, the user gets 2 additional points.
+     */
+    private void hardDrop() {
+        score += 2 * fallingPiece.drop();
+        listener.scoreChanged(score);
+        placePiece();
+    }
+
+    /**
+     * Puts the currently falling piece into the "hold" position and replaces it with the held piece.
+     * The falling piece can't be held again until the next piece spawns.
+     */
+    private void hold() {
+        fallingPiece.spawn(pieceOrder.hold(fallingPiece.getType()));
+        holdUsed = true;
+        pieceSpawned();
+        listener.piecesChanged();
     }
-}
\ No newline at end of file
+}
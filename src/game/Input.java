@@ -0,0 +1,22 @@
+package game;
+
+/**
+ * The actions a player can carry out during the game.
+ * Inputs are passed to a <code>GameState</code> using <code>GameState.applyInput()</code>.
+ * <code>MOVE_LEFT</code> and <code>MOVE_RIGHT</code> move the piece by a single column. Holding a direction with the
+ * <code>_START</code> and <code>_STOP</code> inputs moves the piece once and then repeats the move automatically (DAS/ARR).
+ */
+public enum Input {
+    MOVE_LEFT,
+    MOVE_RIGHT,
+    MOVE_LEFT_START,
+    MOVE_LEFT_STOP,
+    MOVE_RIGHT_START,
+    MOVE_RIGHT_STOP,
+    ROTATE_CLOCKWISE,
+    ROTATE_COUNTERCLOCKWISE,
+    SOFT_DROP_START,
+    SOFT_DROP_STOP,
+    HARD_DROP,
+    HOLD
+}
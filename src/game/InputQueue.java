@@ -0,0 +1,94 @@
+package game;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, lock-free queue of timestamped inputs.
+ * Any number of threads can add inputs, a single thread (the game loop) takes them out. The inputs and their timestamps
+ * are stored in primitive arrays, so adding and taking inputs doesn't allocate anything.
+ */
+public class InputQueue {
+
+    private static final Input[] INPUTS = Input.values();
+
+    private final int mask;
+    private final byte[] inputs;
+    private final long[] timestamps;
+
+    /**
+     * The sequence number of the input stored in each slot. A slot is free for the producer whose sequence number
+     * equals the slot's, and readable by the consumer once it is one higher.
+     */
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /**
+     * Constructs a new <code>InputQueue</code> instance.
+     *
+     * @param capacity the maximum amount of inputs waiting in the queue, must be a power of 2
+     * @throws IllegalArgumentException if the capacity isn't a power of 2
+     */
+    public InputQueue(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of 2!");
+        mask = capacity - 1;
+        inputs = new byte[capacity];
+        timestamps = new long[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds the given input to the queue.
+     * Can be called from any thread.
+     *
+     * @param input     the input
+     * @param timestamp the time the input occurred at, in <code>System.nanoTime()</code> nanoseconds
+     * @return whether the input was added, <code>false</code> if the queue is full
+     */
+    public boolean offer(Input input, long timestamp) {
+        long sequence;
+        int slot;
+        while (true) {
+            sequence = tail.get();
+            slot = (int) sequence & mask;
+            long difference = sequences.get(slot) - sequence;
+            if (difference < 0) return false;
+            if (difference == 0 && tail.compareAndSet(sequence, sequence + 1)) break;
+        }
+        inputs[slot] = (byte) input.ordinal();
+        timestamps[slot] = timestamp;
+        sequences.set(slot, sequence + 1);
+        return true;
+    }
+
+    /**
+     * Returns the timestamp of the next input without taking it out of the queue.
+     * Must only be called by the consumer thread.
+     *
+     * @return the next input's timestamp, <code>Long.MAX_VALUE</code> if the queue is empty
+     */
+    public long peekTimestamp() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) return Long.MAX_VALUE;
+        return timestamps[slot];
+    }
+
+    /**
+     * Takes the next input out of the queue.
+     * Must only be called by the consumer thread.
+     *
+     * @return the next input, <code>null</code> if the queue is empty
+     */
+    public Input poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) return null;
+        Input input = INPUTS[inputs[slot]];
+        sequences.set(slot, head + mask + 1);
+        head++;
+        return input;
+    }
+}
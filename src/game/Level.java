@@ -1,12 +1,21 @@
 package game;
 
-import renderer.GameJFrame;
-
 /**
  * Used for keeping track of the current level and the game speed.
  */
 public class Level {
 
+    /**
+     * The gravity value of falling 1 row per tick.
+     * Gravity is kept as a fixed-point number, so that fractions of rows can be accumulated without rounding errors.
+     */
+    public static final int GRAVITY_UNIT = 1 << 16;
+
+    /**
+     * The highest possible gravity, i.e. the piece falls to the ground in a single tick.
+     */
+    public static final int MAX_GRAVITY = GRAVITY_UNIT * GameState.TILE_COUNT_Y;
+
     private int level;
     private int rowsCleared;
 
@@ -20,24 +29,37 @@ public class Level {
     }
 
     /**
-     * Starts the next level, speeds up the gravity timer and updates the time label.
+     * Sets the current level and the progress towards the next one, e.g. when a saved game is restored.
+     *
+     * @param level       the current level
+     * @param rowsCleared the amount of rows cleared on the current level
+     */
+    public void restore(int level, int rowsCleared) {
+        this.level = level;
+        this.rowsCleared = rowsCleared;
+    }
+
+    /**
+     * Starts the next level, which speeds up the gravity.
      */
     public void nextLevel() {
         level++;
         rowsCleared = 0;
-        GameState.getGame().setGravityTimerDelay(getGravityDelay());
-        GameJFrame.getWindow().updateLevel(level);
     }
 
     /**
      * Increases the <code>rowsCleared</code> value by 1.
      * If the amount of cleared rows reaches 10, the game will move on to the next level, increasing its speed.
+     *
+     * @return whether the game moved on to the next level
      */
-    public void rowCleared() {
+    public boolean rowCleared() {
         rowsCleared++;
         if (rowsCleared >= 10) {
             nextLevel();
+            return true;
         }
+        return false;
     }
 
     /**
@@ -45,21 +67,52 @@ public class Level {
      * If the amount of cleared rows reaches 10, the game will move on to the next level, increasing its speed.
      *
      * @param rows the amount of cleared rows
+     * @return whether the game moved on to the next level
      */
-    public void rowCleared(int rows) {
+    public boolean rowCleared(int rows) {
+        boolean levelUp = false;
         for (int i = 0; i < rows; i++) {
-            rowCleared();
+            if (rowCleared()) levelUp = true;
         }
+        return levelUp;
     }
 
     /**
-     * Returns the gravity timer delay of the current level based on the official gravity curve formula.
+     * Returns the time it takes the piece to fall 1 row on the current level based on the official gravity curve formula.
      * Gravity curve formula: (0.8-((Level-1)*0.007))^(Level-1)
      *
-     * @return the gravity timer delay
+     * @return the gravity delay in milliseconds, 0 once the formula no longer gives a positive time
      */
     public int getGravityDelay() {
-        return (int) (1000 * Math.pow(0.8 - ((level - 1) * 0.007), level - 1));
+        double secondsPerRow = getSecondsPerRow();
+        if (!(secondsPerRow > 0)) return 0;
+        return (int) (1000 * secondsPerRow);
+    }
+
+    /**
+     * Returns the distance the piece falls in a single tick, in fractions of a row (see <code>GRAVITY_UNIT</code>).
+     * The value is based on the same gravity curve formula as <code>getGravityDelay()</code>.
+     *
+     * From level 116 on, the formula's base drops below 0 and the time per row is no longer positive, the gravity stays at
+     * <code>MAX_GRAVITY</code> from there.
+     *
+     * @return the gravity per tick
+     */
+    public int getGravity() {
+        double secondsPerRow = getSecondsPerRow();
+        if (!(secondsPerRow > 0)) return MAX_GRAVITY;
+        double gravity = GRAVITY_UNIT / (secondsPerRow * GameState.TICKS_PER_SECOND);
+        if (!(gravity < MAX_GRAVITY)) return MAX_GRAVITY;
+        return (int) gravity;
+    }
+
+    /**
+     * Returns the time it takes the piece to fall 1 row on the current level based on the official gravity curve formula.
+     *
+     * @return the time per row in seconds
+     */
+    private double getSecondsPerRow() {
+        return Math.pow(0.8 - ((level - 1) * 0.007), level - 1);
     }
 
     @Override
@@ -70,4 +123,8 @@ public class Level {
     public int getLevel() {
         return level;
     }
+
+    public int getRowsCleared() {
+        return rowsCleared;
+    }
 }
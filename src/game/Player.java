@@ -0,0 +1,16 @@
+package game;
+
+/**
+ * A <code>Player</code> controls a game without user input.
+ * It is asked to carry out its moves whenever a new piece starts falling.
+ */
+public interface Player {
+
+    /**
+     * Invoked when a new piece starts falling.
+     * The player carries out its moves by passing inputs to <code>game.applyInput()</code>.
+     *
+     * @param game the game being played
+     */
+    void pieceSpawned(GameState game);
+}
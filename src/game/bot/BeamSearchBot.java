@@ -0,0 +1,406 @@
+package game.bot;
+
+import game.Board;
+import game.GameState;
+import game.pieces.PieceOrder;
+import game.pieces.PieceType;
+
+/**
+ * A <code>Bot</code> which looks ahead across the whole preview and the hold with a beam search.
+ * The search places the falling piece, or the piece swapped in by holding, in every reachable way, keeps the best
+ * <code>beamWidth</code> boards according to its <code>BoardEvaluator</code> and continues with the next piece from each of
+ * them, until the pieces shown in the preview run out. The move chosen is the first move towards the best board of the
+ * deepest completed search depth.
+ * <p>
+ * The search is anytime: it can be stopped at any time and returns the best move of the last completed depth. The first
+ * depth, the placements of the falling piece itself, is always completed. In a game running in real time, the search is
+ * continued for a fraction of each tick through <code>search()</code>, until it's complete or the piece is about to fall a
+ * row, so it never holds up the game's ticks. At 20G the piece falls during the tick after it spawned, so the bot moves
+ * right after the first depth and within a single fraction of a tick.
+ * <p>
+ * The states reached during the search are deduplicated through a bounded <code>TranspositionTable</code>, which also keeps
+ * the evaluations of the boards for the following searches, since each search mostly reaches the boards of the previous one.
+ * An instance is used by a single game at a time.
+ */
+public class BeamSearchBot extends Bot {
+
+    public static final int DEFAULT_BEAM_WIDTH = 32;
+    public static final int DEFAULT_TABLE_CAPACITY = 1 << 16;
+
+    private final BoardEvaluator evaluator;
+    private final int beamWidth;
+    private final boolean anytime;
+    private final TranspositionTable table;
+
+    private final PlacementGenerator placements = new PlacementGenerator();
+    private final Board scratchBoard = new Board();
+    private final int[] upcomingPieceIds = new int[PieceOrder.MAX_PREVIEW_LENGTH];
+    private int previewLength;
+    private int placedPieces;
+
+    /**
+     * The state of the current search: the index of the best root candidate, the depth being searched, the amount of beam
+     * nodes expanded at that depth and the candidates they added.
+     */
+    private int bestMove = -1;
+    private int beamSize;
+    private int depth;
+    private int expandedNodes;
+    private int candidateCount;
+
+    private final Node root = new Node();
+    private Node[] beam;
+    private Node[] nextBeam;
+    private final Candidate[] rootCandidates;
+    private final Candidate[] candidates;
+    private final int[] heap;
+
+    /**
+     * A state of the search: a board reached by the placements of the previous depths.
+     */
+    private static class Node {
+        private final Board board = new Board();
+        private int heldPieceId;
+        private int currentPieceId;
+        private int queueIndex;
+        private boolean holdAvailable;
+        private int rowsCleared;
+        private int rootMove;
+    }
+
+    /**
+     * A placement of a node's piece, the board it leads to is only built if it's kept in the beam.
+     */
+    private static class Candidate {
+        private Node parent;
+        private boolean hold;
+        private PieceType type;
+        private int rotation;
+        private int x;
+        private int y;
+        private int heldPieceId;
+        private int currentPieceId;
+        private int queueIndex;
+        private int rowsCleared;
+        private int rootMove;
+        private boolean gameOver;
+        private double score;
+    }
+
+    /**
+     * Constructs a new <code>BeamSearchBot</code> instance with the default weights, beam width and table capacity, whose
+     * searches through <code>findPlacement(GameState)</code> stop at the gravity delay.
+     */
+    public BeamSearchBot() {
+        this(BoardEvaluator.DEFAULT, DEFAULT_BEAM_WIDTH, DEFAULT_TABLE_CAPACITY, true);
+    }
+
+    /**
+     * Constructs a new <code>BeamSearchBot</code> instance.
+     *
+     * @param evaluator     the evaluator scoring the boards
+     * @param beamWidth     the amount of boards kept at each depth of the search
+     * @param tableCapacity the amount of states kept in the transposition table, a power of 2
+     * @param anytime       whether the searches through <code>findPlacement(GameState)</code> stop at the gravity delay,
+     *                      otherwise they always search the whole preview and the bot makes the same moves no matter how
+     *                      fast it runs (e.g. in simulations)
+     * @throws IllegalArgumentException if the beam width isn't positive or the capacity isn't a power of 2
+     */
+    public BeamSearchBot(BoardEvaluator evaluator, int beamWidth, int tableCapacity, boolean anytime) throws IllegalArgumentException {
+        if (beamWidth < 1) throw new IllegalArgumentException("Beam width must be positive: " + beamWidth);
+        this.evaluator = evaluator;
+        this.beamWidth = beamWidth;
+        this.anytime = anytime;
+        this.table = new TranspositionTable(tableCapacity);
+        beam = createNodes(beamWidth);
+        nextBeam = createNodes(beamWidth);
+        rootCandidates = createCandidates(2 * PlacementGenerator.MAX_PLACEMENTS);
+        candidates = createCandidates(beamWidth * 2 * PlacementGenerator.MAX_PLACEMENTS);
+        heap = new int[beamWidth];
+    }
+
+    private static Node[] createNodes(int count) {
+        Node[] nodes = new Node[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new Node();
+        }
+        return nodes;
+    }
+
+    private static Candidate[] createCandidates(int count) {
+        Candidate[] candidates = new Candidate[count];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = new Candidate();
+        }
+        return candidates;
+    }
+
+    /**
+     * Searches until the whole preview is searched or, for an anytime bot, until the gravity delay has passed.
+     * The search runs all at once, e.g. when the game waits for the move. A game running in real time should spread it
+     * across ticks with <code>startSearch()</code> and <code>search()</code> instead.
+     *
+     * @param game the game being played, its falling piece in its spawn position
+     * @return the best placement found, <code>null</code> if the game is over or no piece is falling
+     */
+    @Override
+    public Placement findPlacement(GameState game) {
+        long deadline = System.nanoTime() + game.getGravityDelayNanos();
+        startSearch(game);
+        search(anytime, deadline);
+        return getSearchedPlacement();
+    }
+
+    /**
+     * Searches until the whole preview is searched or until the given deadline.
+     *
+     * @param game     the game being played, its falling piece in its spawn position
+     * @param deadline the time the search stops at, in <code>System.nanoTime()</code> nanoseconds
+     * @return the best placement found, <code>null</code> if the game is over or no piece is falling
+     */
+    public Placement findPlacement(GameState game, long deadline) {
+        startSearch(game);
+        search(deadline);
+        return getSearchedPlacement();
+    }
+
+    /**
+     * Starts a new search from the game's state and completes its first depth, the placements of the falling piece and
+     * of the piece swapped in by holding.
+     *
+     * @param game the game being played, its falling piece in its spawn position
+     */
+    @Override
+    public void startSearch(GameState game) {
+        bestMove = -1;
+        beamSize = 0;
+        if (game.isGameOver() || game.getFallingPiece() == null || !game.isPieceActive()) return;
+        table.newSearch();
+        PieceOrder pieceOrder = game.getPieceOrder();
+        previewLength = pieceOrder.getPreviewLength();
+        for (int i = 0; i < previewLength; i++) {
+            upcomingPieceIds[i] = pieceOrder.peekPieceId(i);
+        }
+        placedPieces = game.getPlacedPieces();
+
+        root.board.copyFrom(game.getBoard());
+        PieceType heldPiece = pieceOrder.getHeldPiece();
+        root.heldPieceId = heldPiece == null ? -1 : heldPiece.ordinal();
+        root.currentPieceId = game.getFallingPiece().getId();
+        root.queueIndex = 0;
+        root.holdAvailable = !game.isHoldUsed();
+        root.rowsCleared = 0;
+        root.rootMove = -1;
+
+        int rootCount = expand(root, rootCandidates, 0, 0);
+        if (rootCount == 0) return;
+        bestMove = findBest(rootCandidates, rootCount);
+        beamSize = selectBeam(rootCandidates, rootCount);
+        depth = 1;
+        expandedNodes = 0;
+        candidateCount = 0;
+    }
+
+    /**
+     * Continues the current search, depth by depth, until the pieces in the preview run out or until the given deadline.
+     * A depth interrupted by the deadline is continued by the next call.
+     *
+     * @param deadline the time the search stops at, in <code>System.nanoTime()</code> nanoseconds
+     * @return whether the search is complete
+     */
+    @Override
+    public boolean search(long deadline) {
+        return search(true, deadline);
+    }
+
+    private boolean search(boolean timed, long deadline) {
+        while (beamSize > 0) {
+            while (expandedNodes < beamSize) {
+                if (timed && System.nanoTime() - deadline >= 0) return false;
+                candidateCount = expand(beam[expandedNodes++], candidates, candidateCount, depth);
+            }
+            if (candidateCount == 0) break;
+            int best = findBest(candidates, candidateCount);
+            if (!candidates[best].gameOver) bestMove = candidates[best].rootMove;
+            beamSize = selectBeam(candidates, candidateCount);
+            depth++;
+            expandedNodes = 0;
+            candidateCount = 0;
+        }
+        beamSize = 0;
+        return true;
+    }
+
+    /**
+     * Returns the first move towards the best board of the deepest depth the current search completed.
+     *
+     * @return the placement, <code>null</code> if the game was over or no piece was falling when the search started
+     */
+    @Override
+    public Placement getSearchedPlacement() {
+        if (bestMove < 0) return null;
+        Candidate move = rootCandidates[bestMove];
+        return new Placement(move.hold, move.rotation, move.x, move.y, move.score);
+    }
+
+    /**
+     * Adds the placements of the given node's piece, and of the piece swapped in by holding, to the candidates.
+     * Placements reaching a state already reached during the search are skipped.
+     *
+     * @param node       the node
+     * @param candidates the candidates of the node's depth
+     * @param count      the amount of candidates added so far
+     * @param depth      the node's depth, 0 for the root
+     * @return the new amount of candidates
+     */
+    private int expand(Node node, Candidate[] candidates, int count, int depth) {
+        count = addPlacements(node, candidates, count, depth, false, node.currentPieceId, node.heldPieceId, node.queueIndex);
+        if (!node.holdAvailable) return count;
+        if (node.heldPieceId >= 0) {
+            if (node.heldPieceId == node.currentPieceId) return count;
+            return addPlacements(node, candidates, count, depth, true, node.heldPieceId, node.currentPieceId, node.queueIndex);
+        }
+        if (node.queueIndex >= previewLength || upcomingPieceIds[node.queueIndex] == node.currentPieceId) return count;
+        return addPlacements(node, candidates, count, depth, true, upcomingPieceIds[node.queueIndex], node.currentPieceId,
+                node.queueIndex + 1);
+    }
+
+    /**
+     * Adds the placements of a piece on the given node's board to the candidates and scores them.
+     *
+     * @param pieceId     the id of the placed piece
+     * @param heldPieceId the id of the held piece after the placement
+     * @param queueIndex  the index of the next preview piece after the placement
+     * @return the new amount of candidates
+     */
+    private int addPlacements(Node node, Candidate[] candidates, int count, int depth, boolean hold, int pieceId,
+                              int heldPieceId, int queueIndex) {
+        PieceType type = PieceType.fromId(pieceId);
+        int currentPieceId = queueIndex < previewLength ? upcomingPieceIds[queueIndex] : -1;
+        int placementCount = placements.generate(node.board, type);
+        for (int i = 0; i < placementCount; i++) {
+            Candidate candidate = candidates[count];
+            candidate.gameOver = placements.isGameOver(i);
+            int rowsCleared = node.rowsCleared;
+            if (candidate.gameOver) {
+                candidate.score = BoardEvaluator.GAME_OVER_SCORE;
+            } else {
+                rowsCleared += placements.place(node.board, scratchBoard, i);
+                long key = TranspositionTable.getKey(TranspositionTable.hashBoard(scratchBoard), heldPieceId, currentPieceId,
+                        placedPieces + depth + 1);
+                int entry = table.find(key);
+                double evaluation;
+                if (entry < 0) {
+                    evaluation = evaluator.evaluate(scratchBoard, 0);
+                    table.put(key, evaluation);
+                } else if (table.isReached(entry)) {
+                    continue;
+                } else {
+                    evaluation = table.getEvaluation(entry);
+                    table.markReached(entry);
+                }
+                candidate.score = evaluation + evaluator.rowWeight() * rowsCleared;
+            }
+            candidate.parent = node;
+            candidate.hold = hold;
+            candidate.type = type;
+            candidate.rotation = placements.getRotation(i);
+            candidate.x = placements.getX(i);
+            candidate.y = placements.getY(i);
+            candidate.heldPieceId = heldPieceId;
+            candidate.currentPieceId = currentPieceId;
+            candidate.queueIndex = queueIndex + 1;
+            candidate.rowsCleared = rowsCleared;
+            candidate.rootMove = depth == 0 ? count : node.rootMove;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the candidate with the highest score, ties go to the candidate added first.
+     */
+    private static int findBest(Candidate[] candidates, int count) {
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (candidates[i].score > candidates[best].score) best = i;
+        }
+        return best;
+    }
+
+    /**
+     * Builds the boards of the best <code>beamWidth</code> candidates that don't end the game as the new beam.
+     * The best candidates are selected with a min-heap of candidate indices ordered by score.
+     *
+     * @param candidates the candidates
+     * @param count      the amount of candidates
+     * @return the size of the new beam
+     */
+    private int selectBeam(Candidate[] candidates, int count) {
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (candidates[i].gameOver || candidates[i].currentPieceId < 0) continue;
+            if (size < beamWidth) {
+                heap[size] = i;
+                siftUp(candidates, size++);
+            } else if (isWorse(candidates, heap[0], i)) {
+                heap[0] = i;
+                siftDown(candidates, size);
+            }
+        }
+
+        Node[] nodes = nextBeam;
+        for (int i = 0; i < size; i++) {
+            Candidate candidate = candidates[heap[i]];
+            Node node = nodes[i];
+            PlacementGenerator.place(candidate.parent.board, node.board, candidate.type, candidate.rotation, candidate.x, candidate.y);
+            node.heldPieceId = candidate.heldPieceId;
+            node.currentPieceId = candidate.currentPieceId;
+            node.queueIndex = candidate.queueIndex;
+            node.holdAvailable = true;
+            node.rowsCleared = candidate.rowsCleared;
+            node.rootMove = candidate.rootMove;
+        }
+        nextBeam = beam;
+        beam = nodes;
+        return size;
+    }
+
+    /**
+     * Returns whether the first candidate is worse than the second one: it has a lower score, or the same score but was
+     * added later.
+     */
+    private static boolean isWorse(Candidate[] candidates, int first, int second) {
+        double firstScore = candidates[first].score;
+        double secondScore = candidates[second].score;
+        return firstScore < secondScore || (firstScore == secondScore && first > second);
+    }
+
+    private void siftUp(Candidate[] candidates, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isWorse(candidates, heap[index], heap[parent])) return;
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(Candidate[] candidates, int size) {
+        int index = 0;
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            if (left < size && isWorse(candidates, heap[left], heap[worst])) worst = left;
+            if (left + 1 < size && isWorse(candidates, heap[left + 1], heap[worst])) worst = left + 1;
+            if (worst == index) return;
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int first, int second) {
+        int index = heap[first];
+        heap[first] = heap[second];
+        heap[second] = index;
+    }
+}
@@ -0,0 +1,67 @@
+package game.bot;
+
+import game.Board;
+import game.GameState;
+
+/**
+ * A <code>BoardEvaluator</code> instance scores a board after a piece was placed on it with a weighted sum of its features:
+ * the aggregate height of the columns, the bumpiness (the height differences of neighboring columns), the holes (empty
+ * cells below the top of their column), the wells (columns lower than both of their neighbors) and the cleared rows.
+ * A higher score means a better board.
+ *
+ * @param heightWeight    the weight of the sum of all column heights
+ * @param bumpinessWeight the weight of the sum of the height differences of neighboring columns
+ * @param holeWeight      the weight of the amount of holes
+ * @param wellWeight      the weight of the sum of the depths of all wells
+ * @param rowWeight       the weight of the amount of cleared rows
+ */
+public record BoardEvaluator(double heightWeight, double bumpinessWeight, double holeWeight, double wellWeight,
+                             double rowWeight) {
+
+    /**
+     * Weights tuned for clearing as many rows as possible in marathon games.
+     */
+    public static final BoardEvaluator DEFAULT = new BoardEvaluator(-0.510066, -0.184483, -0.35663, -0.05, 0.760666);
+
+    /**
+     * The score of a placement that ends the game.
+     */
+    public static final double GAME_OVER_SCORE = -1e9;
+
+    /**
+     * Scores the given board.
+     * The holes are counted a row at a time from the top: a hole is an empty cell of a row below an occupied cell of any row
+     * above it. The walls count as columns of full height for the wells.
+     *
+     * @param board       the board after the placed piece's rows were cleared
+     * @param rowsCleared the amount of rows the placement cleared
+     * @return the board's score
+     */
+    public double evaluate(Board board, int rowsCleared) {
+        int aggregateHeight = 0;
+        int bumpiness = 0;
+        int wells = 0;
+        int leftHeight = GameState.TILE_COUNT_Y;
+        int height = board.getColumnHeight(0);
+        for (int x = 0; x < GameState.TILE_COUNT_X; x++) {
+            int rightHeight = x + 1 < GameState.TILE_COUNT_X ? board.getColumnHeight(x + 1) : GameState.TILE_COUNT_Y;
+            aggregateHeight += height;
+            if (x + 1 < GameState.TILE_COUNT_X) bumpiness += Math.abs(height - rightHeight);
+            int wellDepth = Math.min(leftHeight, rightHeight) - height;
+            if (wellDepth > 0) wells += wellDepth;
+            leftHeight = height;
+            height = rightHeight;
+        }
+
+        int holes = 0;
+        int coveredColumns = 0;
+        for (int y = GameState.TILE_COUNT_Y - board.getMaxColumnHeight(); y < GameState.TILE_COUNT_Y; y++) {
+            int row = board.getRow(y);
+            holes += Integer.bitCount(coveredColumns & ~row);
+            coveredColumns |= row;
+        }
+
+        return heightWeight * aggregateHeight + bumpinessWeight * bumpiness + holeWeight * holes + wellWeight * wells
+                + rowWeight * rowsCleared;
+    }
+}
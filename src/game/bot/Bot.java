@@ -0,0 +1,102 @@
+package game.bot;
+
+import game.GameState;
+import game.Input;
+import game.Player;
+import game.pieces.PieceShape;
+
+import java.util.function.Consumer;
+
+/**
+ * A <code>Bot</code> is a <code>Player</code> which chooses a <code>Placement</code> for every spawned piece and carries it
+ * out with inputs: it holds the piece if needed, rotates it, moves it to the placement's column and hard drops it.
+ * The placements are found from the piece's spawn position, so the move has to be made before the piece falls a row.
+ * <p>
+ * As a <code>Player</code>, the bot finds its placement and moves right after the piece spawns. A game running in real
+ * time (e.g. a <code>GameLoop</code>) can instead spread the search across ticks: <code>startSearch()</code> when the piece
+ * spawns, <code>search()</code> with a small time budget before each tick, and <code>play()</code> with
+ * <code>getSearchedPlacement()</code> once the search is complete or the piece is about to fall. By default, the whole
+ * placement is found by <code>startSearch()</code>.
+ */
+public abstract class Bot implements Player {
+
+    private Placement searchedPlacement;
+
+    @Override
+    public void pieceSpawned(GameState game) {
+        play(game, game::applyInput);
+    }
+
+    /**
+     * Finds the placement for the piece that just spawned and carries it out.
+     * Does nothing if the game isn't waiting for a move.
+     *
+     * @param game   the game being played, its falling piece in its spawn position
+     * @param inputs receives the inputs of the move, has to apply each input to the game right away
+     */
+    public void play(GameState game, Consumer<Input> inputs) {
+        play(game, findPlacement(game), inputs);
+    }
+
+    /**
+     * Carries out the given placement of the piece that just spawned.
+     *
+     * @param game      the game being played, its falling piece in its spawn position
+     * @param placement the placement, <code>null</code> to do nothing
+     * @param inputs    receives the inputs of the move, has to apply each input to the game right away
+     */
+    public void play(GameState game, Placement placement, Consumer<Input> inputs) {
+        if (placement == null) return;
+        if (placement.hold()) inputs.accept(Input.HOLD);
+        if (placement.rotation() == PieceShape.ROTATION_COUNT - 1) {
+            inputs.accept(Input.ROTATE_COUNTERCLOCKWISE);
+        } else {
+            for (int i = 0; i < placement.rotation(); i++) {
+                inputs.accept(Input.ROTATE_CLOCKWISE);
+            }
+        }
+        int moveAmount = placement.x() - game.getFallingPiece().getX();
+        for (int i = 0; i < Math.abs(moveAmount); i++) {
+            inputs.accept(moveAmount > 0 ? Input.MOVE_RIGHT : Input.MOVE_LEFT);
+        }
+        inputs.accept(Input.HARD_DROP);
+    }
+
+    /**
+     * Returns the placement of the falling piece or of the piece swapped in by holding.
+     *
+     * @param game the game being played, its falling piece in its spawn position
+     * @return the placement, <code>null</code> if the game is over or no piece is falling
+     */
+    public abstract Placement findPlacement(GameState game);
+
+    /**
+     * Starts the search for the placement of the piece that just spawned, which is continued by <code>search()</code>.
+     * The search works on its own copy of the game's state, the game may advance while it's running as long as the piece
+     * doesn't move. By default, the whole placement is found right away.
+     *
+     * @param game the game being played, its falling piece in its spawn position
+     */
+    public void startSearch(GameState game) {
+        searchedPlacement = findPlacement(game);
+    }
+
+    /**
+     * Continues the search started by <code>startSearch()</code> until it's complete or until the given deadline.
+     *
+     * @param deadline the time the search stops at, in <code>System.nanoTime()</code> nanoseconds
+     * @return whether the search is complete, i.e. searching longer wouldn't change the placement
+     */
+    public boolean search(long deadline) {
+        return true;
+    }
+
+    /**
+     * Returns the best placement found by the current search so far.
+     *
+     * @return the placement, <code>null</code> if the game was over or no piece was falling when the search started
+     */
+    public Placement getSearchedPlacement() {
+        return searchedPlacement;
+    }
+}
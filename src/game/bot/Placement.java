@@ -0,0 +1,13 @@
+package game.bot;
+
+/**
+ * A move chosen by a bot: where the falling piece, or the piece swapped in by holding, is placed down.
+ *
+ * @param hold     whether the falling piece is held first
+ * @param rotation the rotation state the piece is placed in
+ * @param x        the column of the piece's bounding box
+ * @param y        the row of the piece's bounding box once it's dropped
+ * @param score    the placement's score, higher is better
+ */
+public record Placement(boolean hold, int rotation, int x, int y, double score) {
+}
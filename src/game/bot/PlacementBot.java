@@ -0,0 +1,247 @@
+package game.bot;
+
+import game.Board;
+import game.GameState;
+import game.pieces.PieceOrder;
+import game.pieces.PieceType;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A <code>Bot</code> which places every piece where a <code>BoardEvaluator</code> scores the resulting board best.
+ * For each spawned piece, the bot enumerates every rotation state and column the piece can reach, and the same for the piece
+ * it would get by holding. Each candidate is dropped onto a copy of the board and, with a lookahead, followed by the
+ * placements of the next pieces in the preview, the best board at the end of a candidate's placements is its score.
+ * <p>
+ * When enough boards have to be evaluated (a lookahead on a board with many reachable placements), the candidates are
+ * scored in parallel on a fork-join pool, otherwise on the calling thread. The best candidate is the same either way,
+ * ties go to the candidate enumerated first.
+ * <p>
+ * The whole move is found at once right after the piece spawns, before the game's next tick, which takes well under a
+ * tick with the default lookahead, so the bot keeps up with any gravity including 20G. An instance is used by a single game
+ * at a time.
+ */
+public class PlacementBot extends Bot {
+
+    public static final int DEFAULT_LOOKAHEAD = 1;
+    public static final int MAX_LOOKAHEAD = 2;
+
+    /**
+     * The estimated amount of evaluated boards below which the candidates are scored on the calling thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    /**
+     * The amount of candidates below which a batch is no longer split between threads.
+     */
+    private static final int BATCH_THRESHOLD = 4;
+
+    private final BoardEvaluator evaluator;
+    private final int lookahead;
+    private final ForkJoinPool pool;
+
+    private final PlacementGenerator fallingPlacements = new PlacementGenerator();
+    private final PlacementGenerator heldPlacements = new PlacementGenerator();
+    private final int[] upcomingPieceIds = new int[PieceOrder.MAX_PREVIEW_LENGTH];
+    private final Search search;
+
+    /**
+     * The search state of each thread scoring candidates in parallel, kept between moves.
+     */
+    private final ThreadLocal<Search> workerSearches = ThreadLocal.withInitial(() -> new Search());
+    private final double[] scores = new double[2 * PlacementGenerator.MAX_PLACEMENTS];
+
+    /**
+     * Constructs a new <code>PlacementBot</code> instance with the default weights and lookahead, which scores its
+     * candidates in parallel on the common fork-join pool.
+     */
+    public PlacementBot() {
+        this(BoardEvaluator.DEFAULT, DEFAULT_LOOKAHEAD, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new <code>PlacementBot</code> instance.
+     *
+     * @param evaluator the evaluator scoring the boards
+     * @param lookahead the amount of preview pieces placed after each candidate, 0 to only place the falling piece
+     * @param pool      the pool the candidates are scored on in parallel, <code>null</code> to always score them on the
+     *                  calling thread (e.g. when many games are already played in parallel)
+     * @throws IllegalArgumentException if the lookahead is negative or more than <code>MAX_LOOKAHEAD</code>
+     */
+    public PlacementBot(BoardEvaluator evaluator, int lookahead, ForkJoinPool pool) throws IllegalArgumentException {
+        if (lookahead < 0 || lookahead > MAX_LOOKAHEAD) throw new IllegalArgumentException("Lookahead out of range: " + lookahead);
+        this.evaluator = evaluator;
+        this.lookahead = lookahead;
+        this.pool = pool;
+        this.search = new Search();
+    }
+
+    /**
+     * Scores every placement of the falling piece and of the piece swapped in by holding, and returns the best one.
+     * Only the pieces shown in the preview are looked ahead at.
+     *
+     * @param game the game being played, its falling piece in its spawn position
+     * @return the best placement, <code>null</code> if the game is over or no piece is falling
+     */
+    @Override
+    public Placement findPlacement(GameState game) {
+        if (game.isGameOver() || game.getFallingPiece() == null || !game.isPieceActive()) return null;
+        Board board = game.getBoard();
+        PieceOrder pieceOrder = game.getPieceOrder();
+        int previewLength = pieceOrder.getPreviewLength();
+        for (int i = 0; i < previewLength; i++) {
+            upcomingPieceIds[i] = pieceOrder.peekPieceId(i);
+        }
+
+        PieceType fallingType = game.getFallingPiece().getType();
+        int fallingCount = fallingPlacements.generate(board, fallingType);
+        int heldCount = 0;
+        int heldPreviewStart = 0;
+        if (!game.isHoldUsed()) {
+            PieceType heldType = pieceOrder.getHeldPiece();
+            if (heldType == null) {
+                heldType = PieceType.fromId(upcomingPieceIds[0]);
+                heldPreviewStart = 1;
+            }
+            if (heldType != fallingType) heldCount = heldPlacements.generate(board, heldType);
+        }
+        int candidateCount = fallingCount + heldCount;
+        if (candidateCount == 0) return null;
+
+        Candidates candidates = new Candidates(board, fallingCount, heldPreviewStart, previewLength);
+        long estimatedBoards = candidateCount;
+        for (int i = 0; i < Math.min(lookahead, previewLength); i++) {
+            estimatedBoards *= fallingCount;
+        }
+        if (pool != null && estimatedBoards >= PARALLEL_THRESHOLD) {
+            pool.invoke(new CandidateBatch(candidates, 0, candidateCount));
+        } else {
+            for (int i = 0; i < candidateCount; i++) {
+                scores[i] = candidates.score(search, i);
+            }
+        }
+
+        int best = 0;
+        for (int i = 1; i < candidateCount; i++) {
+            if (scores[i] > scores[best]) best = i;
+        }
+        boolean hold = best >= fallingCount;
+        PlacementGenerator placements = hold ? heldPlacements : fallingPlacements;
+        int index = hold ? best - fallingCount : best;
+        return new Placement(hold, placements.getRotation(index), placements.getX(index), placements.getY(index), scores[best]);
+    }
+
+    /**
+     * The candidates of a single move: the placements of the falling piece followed by the placements of the held piece.
+     * Only read while the candidates are scored, so it's shared by all threads.
+     */
+    private class Candidates {
+
+        private final Board board;
+        private final int fallingCount;
+        private final int heldPreviewStart;
+        private final int previewLength;
+
+        private Candidates(Board board, int fallingCount, int heldPreviewStart, int previewLength) {
+            this.board = board;
+            this.fallingCount = fallingCount;
+            this.heldPreviewStart = heldPreviewStart;
+            this.previewLength = previewLength;
+        }
+
+        /**
+         * Scores the candidate at the given index.
+         *
+         * @param search the search state of the current thread
+         * @param index  the candidate's index
+         * @return the candidate's score
+         */
+        private double score(Search search, int index) {
+            if (index < fallingCount) return search.scorePlacement(board, fallingPlacements, index, 0, previewLength);
+            return search.scorePlacement(board, heldPlacements, index - fallingCount, heldPreviewStart, previewLength);
+        }
+    }
+
+    /**
+     * The boards and placement generators of each lookahead depth, used by a single thread.
+     */
+    private class Search {
+
+        private final Board[] boards = new Board[lookahead + 1];
+        private final PlacementGenerator[] generators = new PlacementGenerator[lookahead];
+
+        private Search() {
+            for (int i = 0; i < boards.length; i++) {
+                boards[i] = new Board();
+            }
+            for (int i = 0; i < generators.length; i++) {
+                generators[i] = new PlacementGenerator();
+            }
+        }
+
+        /**
+         * Places a candidate on a copy of the board and returns the best score reachable with the following preview pieces.
+         *
+         * @param board         the board of the game
+         * @param placements    the candidate's generator
+         * @param index         the candidate's index in the generator
+         * @param previewIndex  the index of the next piece in the preview
+         * @param previewLength the amount of pieces shown in the preview
+         * @return the candidate's score
+         */
+        private double scorePlacement(Board board, PlacementGenerator placements, int index, int previewIndex, int previewLength) {
+            if (placements.isGameOver(index)) return BoardEvaluator.GAME_OVER_SCORE;
+            int rowsCleared = placements.place(board, boards[0], index);
+            return scoreBoard(0, rowsCleared, previewIndex, Math.min(lookahead, previewLength - previewIndex));
+        }
+
+        /**
+         * Returns the best score reachable by placing the given amount of preview pieces on the board at the given depth.
+         */
+        private double scoreBoard(int depth, int rowsCleared, int previewIndex, int remainingPieces) {
+            Board board = boards[depth];
+            if (remainingPieces == 0) return evaluator.evaluate(board, rowsCleared);
+            PlacementGenerator placements = generators[depth];
+            int count = placements.generate(board, PieceType.fromId(upcomingPieceIds[previewIndex]));
+            double best = BoardEvaluator.GAME_OVER_SCORE;
+            for (int i = 0; i < count; i++) {
+                if (placements.isGameOver(i)) continue;
+                int rows = placements.place(board, boards[depth + 1], i);
+                best = Math.max(best, scoreBoard(depth + 1, rowsCleared + rows, previewIndex + 1, remainingPieces - 1));
+            }
+            return best;
+        }
+    }
+
+    /**
+     * A range of candidates, which is split in half until it is small enough to be scored on a single thread.
+     */
+    private class CandidateBatch extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Candidates candidates;
+        private final int start;
+        private final int end;
+
+        private CandidateBatch(Candidates candidates, int start, int end) {
+            this.candidates = candidates;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= BATCH_THRESHOLD) {
+                Search batchSearch = workerSearches.get();
+                for (int i = start; i < end; i++) {
+                    scores[i] = candidates.score(batchSearch, i);
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new CandidateBatch(candidates, start, middle), new CandidateBatch(candidates, middle, end));
+        }
+    }
+}
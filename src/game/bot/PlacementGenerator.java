@@ -0,0 +1,168 @@
+package game.bot;
+
+import game.Board;
+import game.GameState;
+import game.pieces.Piece;
+import game.pieces.PieceShape;
+import game.pieces.PieceType;
+
+/**
+ * A <code>PlacementGenerator</code> instance enumerates the placements of a piece which can be reached from its spawn
+ * position by rotating it (clockwise once or twice, or counterclockwise once), moving it sideways and hard dropping it.
+ * Placements that cover the same cells are only generated once, e.g. the 4 rotation states of the O piece.
+ * <p>
+ * The placements are kept in reusable arrays, an instance is used by a single thread at a time.
+ */
+class PlacementGenerator {
+
+    /**
+     * The most placements a piece can have, 1 for every rotation state and column.
+     */
+    static final int MAX_PLACEMENTS = PieceShape.ROTATION_COUNT * GameState.TILE_COUNT_X;
+
+    private final Piece cursor = new Piece(PieceType.I);
+    private final int[] rotations = new int[MAX_PLACEMENTS];
+    private final int[] xs = new int[MAX_PLACEMENTS];
+    private final int[] ys = new int[MAX_PLACEMENTS];
+    private final long[] footprints = new long[MAX_PLACEMENTS];
+    private PieceType type;
+    private int count;
+
+    /**
+     * Enumerates the placements of a piece of the given type on the given board.
+     *
+     * @param board the board the piece is placed on
+     * @param type  the piece's type
+     * @return the amount of placements
+     */
+    int generate(Board board, PieceType type) {
+        this.type = type;
+        count = 0;
+        PieceShape shape = type.getShape();
+        for (int rotation = 0; rotation < PieceShape.ROTATION_COUNT; rotation++) {
+            cursor.spawn(type);
+            if (!rotateFromSpawn(board, rotation)) continue;
+            int y = cursor.getY();
+            int spawnX = cursor.getX();
+            int leftX = spawnX;
+            while (cursor.fits(board, leftX - 1, y, rotation)) leftX--;
+            int rightX = spawnX;
+            while (cursor.fits(board, rightX + 1, y, rotation)) rightX++;
+
+            for (int x = leftX; x <= rightX; x++) {
+                int landingY = y + cursor.getDropDistance(board, x, y, rotation);
+                long footprint = getFootprint(shape, rotation, x, landingY);
+                if (isGenerated(footprint)) continue;
+                rotations[count] = rotation;
+                xs[count] = x;
+                ys[count] = landingY;
+                footprints[count] = footprint;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Rotates the cursor from its spawn position into the given rotation state, using the same rotations as
+     * <code>Bot</code>'s inputs.
+     *
+     * @param board    the board the piece rotates on
+     * @param rotation the rotation state
+     * @return whether all rotations succeeded
+     */
+    private boolean rotateFromSpawn(Board board, int rotation) {
+        if (rotation == PieceShape.ROTATION_COUNT - 1) return cursor.rotate(board, -1);
+        for (int i = 0; i < rotation; i++) {
+            if (!cursor.rotate(board, 1)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the cells covered by a placement: the board row of the bounding box's top, followed by the board bitmasks of
+     * its rows.
+     */
+    private static long getFootprint(PieceShape shape, int rotation, int x, int y) {
+        int minY = shape.getMinY(rotation);
+        long footprint = y + minY;
+        int shift = 5;
+        for (int row = minY; row <= shape.getMaxY(rotation); row++) {
+            int mask = shape.getRowMask(rotation, row);
+            footprint |= (long) (x >= 0 ? mask << x : mask >>> -x) << shift;
+            shift += GameState.TILE_COUNT_X;
+        }
+        return footprint;
+    }
+
+    private boolean isGenerated(long footprint) {
+        for (int i = 0; i < count; i++) {
+            if (footprints[i] == footprint) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Places the piece with the placement at the given index on a copy of the given board and clears the filled rows.
+     *
+     * @param source the board the piece is placed on, not modified
+     * @param target the board receiving the copy with the placed piece
+     * @param index  the placement's index
+     * @return the amount of cleared rows
+     */
+    int place(Board source, Board target, int index) {
+        return place(source, target, type, rotations[index], xs[index], ys[index]);
+    }
+
+    /**
+     * Places a piece on a copy of the given board and clears the filled rows.
+     *
+     * @param source   the board the piece is placed on, not modified
+     * @param target   the board receiving the copy with the placed piece
+     * @param type     the piece's type
+     * @param rotation the piece's rotation state
+     * @param x        the column of the piece's bounding box
+     * @param y        the row of the piece's bounding box
+     * @return the amount of cleared rows
+     */
+    static int place(Board source, Board target, PieceType type, int rotation, int x, int y) {
+        target.copyFrom(source);
+        PieceShape shape = type.getShape();
+        int minY = shape.getMinY(rotation);
+        int maxY = shape.getMaxY(rotation);
+        for (int row = minY; row <= maxY; row++) {
+            int mask = shape.getRowMask(rotation, row);
+            target.fillRow(y + row, x >= 0 ? mask << x : mask >>> -x, type.ordinal());
+        }
+        int rowsFilled = target.getFilledRows(y + minY, maxY - minY + 1);
+        if (rowsFilled == 0) return 0;
+        target.clearRows(rowsFilled);
+        return Integer.bitCount(rowsFilled);
+    }
+
+    /**
+     * Returns whether the placement at the given index ends the game, i.e. whether the piece is placed in the top 2 rows.
+     *
+     * @param index the placement's index
+     * @return whether the placement ends the game
+     */
+    boolean isGameOver(int index) {
+        return ys[index] + type.getShape().getMinY(rotations[index]) <= 1;
+    }
+
+    int getRotation(int index) {
+        return rotations[index];
+    }
+
+    int getX(int index) {
+        return xs[index];
+    }
+
+    int getY(int index) {
+        return ys[index];
+    }
+
+    PieceType getType() {
+        return type;
+    }
+}
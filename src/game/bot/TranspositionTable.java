@@ -0,0 +1,159 @@
+package game.bot;
+
+import game.Board;
+import game.GameState;
+import game.pieces.SplitMix64;
+
+/**
+ * A <code>TranspositionTable</code> instance remembers the search states a bot has already reached, keyed by Zobrist
+ * hashes, so a state reached through different moves is only searched once, and stores the evaluation of each state's
+ * board, so boards reached again in a later search aren't evaluated again.
+ * <p>
+ * The table has a fixed capacity. Each key maps to a bucket of 2 entries, a new entry replaces an empty entry or one from
+ * an older search, otherwise the bucket's second entry. The keys are never 0, 0 marks an empty entry.
+ */
+class TranspositionTable {
+
+    private static final int BUCKET_SIZE = 2;
+
+    private static final long[] CELL_KEYS = new long[GameState.TILE_COUNT_X * GameState.TILE_COUNT_Y];
+    private static final long[] HELD_PIECE_KEYS = new long[GameState.PIECE_COUNT + 1];
+    private static final long[] CURRENT_PIECE_KEYS = new long[GameState.PIECE_COUNT + 1];
+    private static final long PLACED_PIECES_KEY;
+
+    static {
+        SplitMix64 random = new SplitMix64(0x5A0B2157L);
+        for (int i = 0; i < CELL_KEYS.length; i++) {
+            CELL_KEYS[i] = random.nextLong();
+        }
+        for (int i = 0; i < HELD_PIECE_KEYS.length; i++) {
+            HELD_PIECE_KEYS[i] = random.nextLong();
+            CURRENT_PIECE_KEYS[i] = random.nextLong();
+        }
+        PLACED_PIECES_KEY = random.nextLong() | 1;
+    }
+
+    private final long[] keys;
+    private final double[] evaluations;
+    private final int[] searches;
+    private final int mask;
+    private int search;
+
+    /**
+     * Constructs a new, empty <code>TranspositionTable</code> instance.
+     *
+     * @param capacity the amount of entries, a power of 2 of at least 2
+     * @throws IllegalArgumentException if the capacity isn't a power of 2 of at least 2
+     */
+    TranspositionTable(int capacity) throws IllegalArgumentException {
+        if (capacity < BUCKET_SIZE || Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of 2: " + capacity);
+        keys = new long[capacity];
+        evaluations = new double[capacity];
+        searches = new int[capacity];
+        mask = capacity - BUCKET_SIZE;
+    }
+
+    /**
+     * Returns the Zobrist hash of the given board: the keys of its occupied cells combined with XOR.
+     *
+     * @param board the board
+     * @return the board's hash
+     */
+    static long hashBoard(Board board) {
+        long hash = 0;
+        for (int y = GameState.TILE_COUNT_Y - board.getMaxColumnHeight(); y < GameState.TILE_COUNT_Y; y++) {
+            int offset = y * GameState.TILE_COUNT_X;
+            for (int row = board.getRow(y); row != 0; row &= row - 1) {
+                hash ^= CELL_KEYS[offset + Integer.numberOfTrailingZeros(row)];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the key of a search state. The board, the held piece, the piece to be placed next and the amount of placed
+     * pieces determine the rest of the state, i.e. which preview pieces are still to come and how many rows were cleared.
+     *
+     * @param boardHash      the hash of the board
+     * @param heldPieceId    the id of the held piece, -1 if no piece is held
+     * @param currentPieceId the id of the piece to be placed next, -1 if it isn't known yet
+     * @param placedPieces   the amount of pieces placed in the game so far
+     * @return the state's key, never 0
+     */
+    static long getKey(long boardHash, int heldPieceId, int currentPieceId, int placedPieces) {
+        long key = boardHash ^ HELD_PIECE_KEYS[heldPieceId + 1] ^ CURRENT_PIECE_KEYS[currentPieceId + 1]
+                ^ placedPieces * PLACED_PIECES_KEY;
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Starts a new search, the states reached by earlier searches are no longer marked as reached, but their evaluations
+     * are kept until they are replaced.
+     */
+    void newSearch() {
+        search++;
+    }
+
+    /**
+     * Returns the entry of the given key.
+     *
+     * @param key the key
+     * @return the entry's index, -1 if the key isn't in the table
+     */
+    int find(long key) {
+        int bucket = (int) (key ^ (key >>> 32)) & mask;
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            if (keys[i] == key) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the state of the given entry was already reached during the current search.
+     *
+     * @param entry the entry's index
+     * @return whether the state was reached
+     */
+    boolean isReached(int entry) {
+        return searches[entry] == search;
+    }
+
+    /**
+     * Marks the state of the given entry as reached during the current search.
+     *
+     * @param entry the entry's index
+     */
+    void markReached(int entry) {
+        searches[entry] = search;
+    }
+
+    /**
+     * Returns the evaluation of the board of the given entry's state.
+     *
+     * @param entry the entry's index
+     * @return the board's evaluation
+     */
+    double getEvaluation(int entry) {
+        return evaluations[entry];
+    }
+
+    /**
+     * Adds a state reached during the current search, replacing an entry of its bucket.
+     *
+     * @param key        the state's key
+     * @param evaluation the evaluation of the state's board
+     */
+    void put(long key, double evaluation) {
+        int bucket = (int) (key ^ (key >>> 32)) & mask;
+        int entry = bucket + BUCKET_SIZE - 1;
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            if (keys[i] == 0 || searches[i] != search) {
+                entry = i;
+                break;
+            }
+        }
+        keys[entry] = key;
+        evaluations[entry] = evaluation;
+        searches[entry] = search;
+    }
+}
@@ -0,0 +1,115 @@
+package game.pieces;
+
+import game.GameState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A <code>Randomizer</code> which deals the pieces from bags containing the same amount of pieces of each type.
+ * Each bag is shuffled before it is dealt, so no piece type can be missing for longer than 2 bags.
+ * The state of the randomizer is the state of the random number generator before the current bag was shuffled and the
+ * position in the bag, the bag itself is shuffled again when the state is restored.
+ */
+public class BagRandomizer implements Randomizer {
+
+    private final SplitMix64 random;
+    private final int copies;
+    private final byte[] bag;
+    private int index;
+    private long shuffleState;
+
+    /**
+     * Constructs a new <code>BagRandomizer</code> instance.
+     *
+     * @param random the random number generator the bags are shuffled with
+     * @param copies the amount of pieces of each type in a bag, e.g. 1 for a 7-bag
+     * @throws IllegalArgumentException if the amount of copies isn't positive
+     */
+    public BagRandomizer(SplitMix64 random, int copies) throws IllegalArgumentException {
+        if (copies <= 0) throw new IllegalArgumentException("A bag must contain every piece!");
+        this.random = random;
+        this.copies = copies;
+        this.bag = new byte[GameState.PIECE_COUNT * copies];
+        this.index = bag.length;
+    }
+
+    @Override
+    public int next() {
+        if (index == bag.length) shuffleBag();
+        return bag[index++];
+    }
+
+    @Override
+    public void fill(byte[] ids, int offset, int length) {
+        while (length > 0) {
+            if (index == bag.length) shuffleBag();
+            int count = Math.min(length, bag.length - index);
+            System.arraycopy(bag, index, ids, offset, count);
+            index += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Refills the bag with the pieces of each type and shuffles it.
+     */
+    private void shuffleBag() {
+        shuffleState = random.getState();
+        for (int i = 0; i < bag.length; i++) {
+            bag[i] = (byte) (i % GameState.PIECE_COUNT);
+        }
+        for (int i = bag.length - 1; i > 0; i--) {
+            int swappedIndex = random.nextInt(i + 1);
+            byte piece = bag[i];
+            bag[i] = bag[swappedIndex];
+            bag[swappedIndex] = piece;
+        }
+        index = 0;
+    }
+
+    @Override
+    public Kind getKind() {
+        return switch (copies) {
+            case 1 -> Kind.SEVEN_BAG;
+            case 2 -> Kind.FOURTEEN_BAG;
+            default -> null;
+        };
+    }
+
+    @Override
+    public Randomizer split() {
+        return new BagRandomizer(random.split(), copies);
+    }
+
+    @Override
+    public Randomizer copy() {
+        BagRandomizer copy = new BagRandomizer(new SplitMix64(0), copies);
+        copyInto(copy);
+        return copy;
+    }
+
+    @Override
+    public void copyInto(Randomizer target) throws ClassCastException {
+        BagRandomizer bagTarget = (BagRandomizer) target;
+        if (bagTarget.copies != copies) throw new ClassCastException("Bag sizes don't match!");
+        bagTarget.random.setState(random.getState());
+        System.arraycopy(bag, 0, bagTarget.bag, 0, bag.length);
+        bagTarget.index = index;
+        bagTarget.shuffleState = shuffleState;
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        buffer.putLong(index == bag.length ? random.getState() : shuffleState);
+        buffer.putShort((short) index);
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        random.setState(buffer.getLong());
+        int index = buffer.getShort();
+        if (index < bag.length) shuffleBag();
+        this.index = index;
+    }
+}
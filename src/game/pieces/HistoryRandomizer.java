@@ -0,0 +1,114 @@
+package game.pieces;
+
+import game.GameState;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A <code>Randomizer</code> which remembers the last 4 generated pieces and rolls a piece up to 4 times in total (at most 3
+ * rerolls) while it is one of them, as in The Grand Master. The history starts out filled with Z pieces and the first piece
+ * is never an S, Z or O piece.
+ */
+public class HistoryRandomizer implements Randomizer {
+
+    public static final int HISTORY_LENGTH = 4;
+
+    /**
+     * The most times a piece is rolled, counting the first roll.
+     */
+    public static final int ROLL_COUNT = 4;
+
+    /**
+     * The piece types the first piece is chosen from, so the game never starts with an overhang.
+     */
+    private static final PieceType[] FIRST_PIECES = {PieceType.I, PieceType.J, PieceType.L, PieceType.T};
+
+    private final SplitMix64 random;
+    private final byte[] history = new byte[HISTORY_LENGTH];
+    private int historyIndex;
+    private boolean firstPiece = true;
+
+    /**
+     * Constructs a new <code>HistoryRandomizer</code> instance.
+     *
+     * @param random the random number generator the pieces are rolled with
+     */
+    public HistoryRandomizer(SplitMix64 random) {
+        this.random = random;
+        for (int i = 0; i < HISTORY_LENGTH; i++) {
+            history[i] = (byte) PieceType.Z.ordinal();
+        }
+    }
+
+    @Override
+    public int next() {
+        int piece;
+        if (firstPiece) {
+            firstPiece = false;
+            piece = FIRST_PIECES[random.nextInt(FIRST_PIECES.length)].ordinal();
+        } else {
+            piece = random.nextInt(GameState.PIECE_COUNT);
+            for (int roll = 1; roll < ROLL_COUNT && isInHistory(piece); roll++) {
+                piece = random.nextInt(GameState.PIECE_COUNT);
+            }
+        }
+        history[historyIndex] = (byte) piece;
+        historyIndex = (historyIndex + 1) % HISTORY_LENGTH;
+        return piece;
+    }
+
+    /**
+     * Returns whether the given piece is one of the last generated pieces.
+     *
+     * @param piece the piece's id
+     * @return whether the piece is in the history
+     */
+    private boolean isInHistory(int piece) {
+        for (byte historyPiece : history) {
+            if (historyPiece == piece) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Kind getKind() {
+        return Kind.HISTORY;
+    }
+
+    @Override
+    public Randomizer split() {
+        return new HistoryRandomizer(random.split());
+    }
+
+    @Override
+    public Randomizer copy() {
+        HistoryRandomizer copy = new HistoryRandomizer(new SplitMix64(0));
+        copyInto(copy);
+        return copy;
+    }
+
+    @Override
+    public void copyInto(Randomizer target) throws ClassCastException {
+        HistoryRandomizer historyTarget = (HistoryRandomizer) target;
+        historyTarget.random.setState(random.getState());
+        System.arraycopy(history, 0, historyTarget.history, 0, HISTORY_LENGTH);
+        historyTarget.historyIndex = historyIndex;
+        historyTarget.firstPiece = firstPiece;
+    }
+
+    @Override
+    public void writeState(ByteBuffer buffer) {
+        buffer.putLong(random.getState());
+        buffer.put(history);
+        buffer.put((byte) (firstPiece ? -1 : historyIndex));
+    }
+
+    @Override
+    public void readState(ByteBuffer buffer) {
+        random.setState(buffer.getLong());
+        buffer.get(history);
+        int historyIndex = buffer.get();
+        firstPiece = historyIndex < 0;
+        this.historyIndex = firstPiece ? 0 : historyIndex;
+    }
+}
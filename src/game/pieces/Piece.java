@@ -1,130 +1,136 @@
 package game.pieces;
 
+import game.Board;
 import game.GameState;
-import renderer.Renderer;
-
-import java.awt.*;
 
 /**
  * Represents a falling piece in the game.
- * Subclasses of this class have pre-defined colors, starting tiles and center tile indexes.
+ * A piece is a mutable cursor over the immutable data of its <code>PieceType</code>: the piece's tiles are looked up in the
+ * precomputed rotation states of the type's <code>PieceShape</code>, the piece itself only keeps track of the position of its
+ * bounding box and its rotation state.
+ * A game uses a single instance for all of its falling pieces, which is respawned with the type of each new piece.
  */
-public abstract class Piece {
-    private Point[] tiles;
-    private int centerTile;
-    private Color color;
+public class Piece {
+    private PieceType type;
+    private PieceShape shape;
+    private int x;
+    private int y;
+    private int rotation;
     private int gravityCount;
 
-    private boolean placeDelay;
+    /**
+     * Constructs a new <code>Piece</code> instance of the given type in its spawn position.
+     *
+     * @param type the piece's type
+     */
+    public Piece(PieceType type) {
+        spawn(type);
+    }
 
-    private boolean alreadyHeld;
+    /**
+     * Turns the piece into a piece of the given type in its spawn position.
+     *
+     * @param type the piece's new type
+     */
+    public void spawn(PieceType type) {
+        this.type = type;
+        this.shape = type.getShape();
+        reset();
+    }
 
     /**
-     * Constructs a new <code>Piece</code> instance.
+     * Turns the piece into a piece of the given type with the given position and rotation state, e.g. when a saved game is
+     * restored.
      *
-     * @param color      the piece's color
-     * @param centerTile the piece's center tile's index
+     * @param type         the piece's type
+     * @param x            the column of the bounding box
+     * @param y            the row of the bounding box
+     * @param rotation     the rotation state
+     * @param gravityCount the amount of times the piece has to fall before it touches the ground
      */
-    public Piece(Color color, int centerTile) {
-        this.tiles = getStartingTiles();
-        this.centerTile = centerTile;
-        this.color = color;
-        this.alreadyHeld = false;
-        placeDelay = false;
+    public void restore(PieceType type, int x, int y, int rotation, int gravityCount) {
+        spawn(type);
+        this.x = x;
+        this.y = y;
+        this.rotation = rotation;
+        this.gravityCount = gravityCount;
     }
 
     /**
-     * Lowers this piece by 1 tile.
-     * Before the piece places down (returns <code>false</code>), there's a delay, the length of which is 1 gravity interval.
+     * Lowers this piece by 1 tile if it isn't touching the ground.
      *
      * @return whether it was able to fall
      */
-    public boolean gravity() {
-        if (gravityCount <= 0) {
-            if (!placeDelay) {
-                placeDelay = true;
-                return true;
-            }
-            return false;
-        }
+    public boolean fall() {
+        if (gravityCount <= 0) return false;
         gravityCount--;
-        placeDelay = false;
-        for (Point piece : tiles) {
-            piece.y++;
-        }
+        y++;
         return true;
     }
 
     /**
-     * Calculates and sets the amount of times the piece has to fall before it touches the ground.
-     * Called whenever the piece moves.
+     * Lowers this piece until it touches the ground.
+     *
+     * @return the amount of rows the piece fell
      */
-    public void calculateGravityCount() {
-        int lowestGravityCount = GameState.TILE_COUNT_Y;
-        int currentGravityCount = GameState.TILE_COUNT_Y;
-        for (Point tile : tiles) {
-            for (int i = tile.y; i < GameState.TILE_COUNT_Y; i++) {
-                if (GameState.getGame().getTiles()[tile.x][i].isOccupied()) {
-                    break;
-                }
-                currentGravityCount = i - tile.y;
-            }
-            if (currentGravityCount < lowestGravityCount) lowestGravityCount = currentGravityCount;
-        }
-        gravityCount = lowestGravityCount;
-    }
-
-    public int getGravityCount() {
-        return gravityCount;
-    }
-
-    public boolean isPlaceDelay() {
-        return placeDelay;
-    }
-
-    public void setPlaceDelay(boolean placeDelay) {
-        this.placeDelay = placeDelay;
+    public int drop() {
+        int distance = gravityCount;
+        y += distance;
+        gravityCount = 0;
+        return distance;
     }
 
     /**
-     * Moves the piece 1 step to the left if it is able to move.
+     * Calculates and sets the amount of times the piece has to fall before it touches the ground.
+     * Called whenever the piece moves.
      *
-     * @return whether the piece moved
+     * @param board the board the piece falls on
      */
-    private boolean moveLeft() {
-        if (!canMoveHorizontal(-1)) return false;
-        for (Point piece : tiles) {
-            piece.x--;
-        }
-        return true;
+    public void calculateGravityCount(Board board) {
+        gravityCount = getDropDistance(board, x, y, rotation);
     }
 
     /**
-     * Moves the piece 1 step to the right if it is able to move.
+     * Returns the amount of rows the piece with the given position and rotation state can fall before it touches the ground.
+     * The distance is calculated from the column heights of the board. If the piece is below the top of any of its columns
+     * (e.g. when it was moved under an overhang), the rows below the piece are checked one by one instead.
      *
-     * @return whether the piece moved
+     * @param board    the board the piece falls on
+     * @param x        the column of the bounding box
+     * @param y        the row of the bounding box
+     * @param rotation the rotation state
+     * @return the drop distance
      */
-    private boolean moveRight() {
-        //System.out.println("Move right!");
-        if (!canMoveHorizontal(1)) return false;
-        for (Point piece : tiles) {
-            piece.x++;
+    public int getDropDistance(Board board, int x, int y, int rotation) {
+        int distance = GameState.TILE_COUNT_Y;
+        for (int column = shape.getMinX(rotation); column <= shape.getMaxX(rotation); column++) {
+            int columnTop = GameState.TILE_COUNT_Y - board.getColumnHeight(x + column);
+            int columnDistance = columnTop - 1 - (y + shape.getColumnBottom(rotation, column));
+            if (columnDistance < 0) return probeDropDistance(board, x, y, rotation);
+            if (columnDistance < distance) distance = columnDistance;
         }
-        return true;
-        //System.out.println("Moved right");
+        return distance;
     }
 
     /**
-     * Moves the piece 1 row up if it is able to move.
+     * Returns the drop distance by lowering the piece 1 row at a time until it no longer fits.
      *
-     * @return whether the piece moved
+     * @param board    the board the piece falls on
+     * @param x        the column of the bounding box
+     * @param y        the row of the bounding box
+     * @param rotation the rotation state
+     * @return the drop distance
      */
-    private boolean moveUp() {
-        if (!canMoveVertical(-1)) return false;
-        for (Point piece : tiles) {
-            piece.y--;
+    private int probeDropDistance(Board board, int x, int y, int rotation) {
+        int distance = 0;
+        while (fits(board, x, y + distance + 1, rotation)) {
+            distance++;
         }
-        return true;
+        return distance;
+    }
+
+    public int getGravityCount() {
+        return gravityCount;
     }
 
     /**
@@ -132,17 +138,20 @@ public abstract class Piece {
      * If the number of tiles is positive, the piece moves to the right.
      * If the number of tiles is negative, the piece moves to the left.
      *
+     * @param board         the board the piece moves on
      * @param numberOfTiles the number of times the piece is supposed to move
      * @return whether the piece moved
      */
-    public boolean move(int numberOfTiles) {
+    public boolean move(Board board, int numberOfTiles) {
+        int direction = numberOfTiles > 0 ? 1 : -1;
         boolean moved = false;
         for (int i = 0; i < Math.abs(numberOfTiles); i++) {
-            if (numberOfTiles > 0) moved = moveRight();
-            if (numberOfTiles < 0) moved = moveLeft();
+            if (!fits(board, x + direction, y, rotation)) break;
+            x += direction;
+            moved = true;
         }
         if (moved) {
-            calculateGravityCount();
+            calculateGravityCount(board);
             return true;
         } else {
             return false;
@@ -150,106 +159,131 @@ public abstract class Piece {
     }
 
     /**
-     * Returns whether the piece can move in the given horizontal direction.
-     * Called whenever the piece is supposed to move in the given direction.
+     * Returns whether the piece would fit on the board with the given position and rotation state.
+     * The piece doesn't fit if any of its tiles is outside the board or on an occupied tile.
+     * Each row of the piece is checked against the board's row with a single shift and AND.
      *
-     * @param direction the direction the piece is supposed to move in (1 - Right; -1 - Left)
-     * @return whether the piece can move in the given direction
-     * @throws IllegalArgumentException if the direction is a number other than 1 or -1
+     * @param board    the board the piece is on
+     * @param x        the column of the bounding box
+     * @param y        the row of the bounding box
+     * @param rotation the rotation state
+     * @return whether the piece fits
      */
-    private boolean canMoveHorizontal(int direction) throws IllegalArgumentException {
-        if (direction != 1 && direction != -1) throw new IllegalArgumentException("Direction must be 1 or -1");
-        for (Point piece : tiles) {
-            if (piece.getX() + direction < 0 || piece.getX() + direction > GameState.TILE_COUNT_X - 1) return false;
-            if (GameState.getGame().getTiles()[(int) (piece.getX() + direction)][(int) (piece.getY())].isOccupied())
-                return false;
+    public boolean fits(Board board, int x, int y, int rotation) {
+        if (x + shape.getMinX(rotation) < 0 || x + shape.getMaxX(rotation) > GameState.TILE_COUNT_X - 1) return false;
+        int maxY = shape.getMaxY(rotation);
+        if (y + shape.getMinY(rotation) < 0 || y + maxY > GameState.TILE_COUNT_Y - 1) return false;
+        for (int row = shape.getMinY(rotation); row <= maxY; row++) {
+            int mask = shape.getRowMask(rotation, row);
+            int shiftedMask = x >= 0 ? mask << x : mask >>> -x;
+            if ((board.getRow(y + row) & shiftedMask) != 0) return false;
         }
         return true;
     }
 
     /**
-     * Returns whether the piece can move in the given vertical direction.
-     * Called when the piece is supposed to move in the given direction.
+     * Returns the bitmask of the given board row covered by the piece.
      *
-     * @param direction the direction the piece is supposed to move in (1 - Down; -1 - Up)
-     * @return whether the piece can move in the given direction
-     * @throws IllegalArgumentException if the direction is a number other than 1 or -1
+     * @param boardRow the row of the board
+     * @return the row's bitmask (bit <code>x</code> set means column <code>x</code> is covered), 0 if the piece doesn't cover the row
      */
-    private boolean canMoveVertical(int direction) throws IllegalArgumentException {
-        if (direction != 1 && direction != -1) throw new IllegalArgumentException("Direction must be 1 or -1");
-        for (Point piece : tiles) {
-            if (piece.getY() + direction < 0 || piece.getY() + direction > GameState.TILE_COUNT_Y - 1) return false;
-            if (GameState.getGame().getTiles()[piece.x][piece.y + direction].isOccupied()) return false;
-        }
-        return true;
+    public int getRowMask(int boardRow) {
+        int row = boardRow - y;
+        if (row < 0 || row >= shape.getSize()) return 0;
+        int mask = shape.getRowMask(rotation, row);
+        return x >= 0 ? mask << x : mask >>> -x;
     }
 
     /**
      * Rotates the piece in the given direction.
-     * If the piece can not move due to an occupied tile, nothing happens.
-     * If the rotated piece is out of bounds, it is moved back inside the game boundaries.
+     * The wall kick tests of the rotation are tried in order, the piece is moved by the first test with which it fits.
+     * If none of the tests fit, nothing happens.
      *
+     * @param board     the board the piece rotates on
      * @param direction the direction the piece is supposed to rotate in (1 - Clockwise; -1 - Counter-clockwise)
+     * @return whether the piece rotated
      * @throws IllegalArgumentException if the direction is a number other than 1 or -1
      */
-    public void rotate(int direction) throws IllegalArgumentException {
+    public boolean rotate(Board board, int direction) throws IllegalArgumentException {
         if (direction != 1 && direction != -1) throw new IllegalArgumentException("Direction must be 1 or -1");
-        if (centerTile == 0) return;
-        Point[] rotatedTiles = new Point[4];
-        int pointX;
-        int pointY;
-        for (int i = 0; i < tiles.length; i++) {
-            pointX = tiles[centerTile].x - (tiles[i].y - tiles[centerTile].y) * direction;
-            pointY = tiles[centerTile].y + (tiles[i].x - tiles[centerTile].x) * direction;
-            if (pointX < 0) {
-                if (!move(1)) return;
-                rotate(direction);
-                return;
-
-            } else if (pointX > GameState.TILE_COUNT_X - 1) {
-                if (!move(-1)) return;
-                rotate(direction);
-                return;
-
-            }
-            if (pointY < 0) {
-                return;
-            } else if (pointY > GameState.TILE_COUNT_Y - 1) {
-                if (!moveUp()) return;
-                rotate(direction);
-                return;
-            }
-            if (GameState.getGame().getTiles()[pointX][pointY].isOccupied()) return;
-            rotatedTiles[i] = new Point(pointX, pointY);
+        int rotatedRotation = (rotation + direction) & (PieceShape.ROTATION_COUNT - 1);
+        int[] kicks = shape.getKicks(rotation, direction);
+        for (int i = 0; i < kicks.length; i += 2) {
+            if (!fits(board, x + kicks[i], y + kicks[i + 1], rotatedRotation)) continue;
+            x += kicks[i];
+            y += kicks[i + 1];
+            rotation = rotatedRotation;
+            calculateGravityCount(board);
+            return true;
         }
-        tiles = rotatedTiles;
-        calculateGravityCount();
-        Renderer.render();
+        return false;
+    }
+
+    /**
+     * Returns the column of the given tile on the board.
+     *
+     * @param tile the tile's index (0 - 3)
+     * @return the tile's column
+     */
+    public int getTileX(int tile) {
+        return x + shape.getTileX(rotation, tile);
     }
 
-    public Point[] getTiles() {
-        return tiles;
+    /**
+     * Returns the row of the given tile on the board.
+     *
+     * @param tile the tile's index (0 - 3)
+     * @return the tile's row
+     */
+    public int getTileY(int tile) {
+        return y + shape.getTileY(rotation, tile);
+    }
+
+    /**
+     * Moves the piece back to its spawn position and rotation state.
+     */
+    public void reset() {
+        x = shape.getSpawnX();
+        y = shape.getSpawnY();
+        rotation = 0;
+    }
+
+    /**
+     * Returns the piece's id, i.e. its type's ordinal.
+     * The ids match the order of the piece textures (I, J, L, O, S, T, Z).
+     *
+     * @return the piece's id
+     */
+    public int getId() {
+        return type.ordinal();
     }
 
-    public void resetTiles() {
-        tiles = getStartingTiles();
+    public PieceType getType() {
+        return type;
     }
 
-    public boolean wasAlreadyHeld() {
-        return alreadyHeld;
+    public PieceShape getShape() {
+        return shape;
     }
 
-    public void setAlreadyHeld() {
-        this.alreadyHeld = true;
+    public int getX() {
+        return x;
     }
 
-    public Color getColor() {
-        return color;
+    public int getY() {
+        return y;
     }
 
-    protected abstract Point[] getStartingTiles();
+    public int getRotation() {
+        return rotation;
+    }
 
-    public int getCenterTile() {
-        return centerTile;
+    /**
+     * Returns the column in the middle of the piece's bounding box.
+     *
+     * @return the center column
+     */
+    public int getCenterX() {
+        return x + (shape.getSize() - 1) / 2;
     }
 }
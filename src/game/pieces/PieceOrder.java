@@ -1,155 +1,230 @@
 package game.pieces;
 
 import game.GameState;
-import game.pieces.types.*;
 
-import javax.swing.*;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Random;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A <code>PieceOrder</code> instance serves as a queue for pre-generated upcoming pieces.
- * In Tetris, the order in which you get the pieces is based on sets of pieces, which contain only 1 of each piece.
- * <code>PieceOrder</code> has 2 such sets generated at all times, so the user can always see the next 6 upcoming pieces.
+ * The order of the pieces is generated by a seeded <code>Randomizer</code>, by default the 7-bag randomizer used in Tetris,
+ * which deals sets of pieces containing only 1 of each piece.
+ * The upcoming pieces are stored as piece ids in a ring buffer, which is refilled a set at a time, so there are always
+ * enough pieces generated for the longest preview.
+ * The upcoming pieces can be read through a <code>PiecePreview</code> without copying them.
  */
 public class PieceOrder {
 
-    private LinkedList<Piece> currentPieceList;
-    private LinkedList<Piece> nextPieceList;
+    public static final int MIN_PREVIEW_LENGTH = 1;
+    public static final int MAX_PREVIEW_LENGTH = 14;
+    public static final int DEFAULT_PREVIEW_LENGTH = 6;
 
-    private Piece heldPiece;
+    /**
+     * The capacity of the ring buffer, a power of 2 large enough for the longest preview plus a whole set of pieces.
+     */
+    private static final int CAPACITY = 32;
+    private static final int MASK = CAPACITY - 1;
+
+    private final byte[] upcomingPieces = new byte[CAPACITY];
+    private int head;
+    private int size;
+
+    private PieceType heldPiece;
 
-    private ArrayList<Piece> pieceTypes;
+    private int previewLength = DEFAULT_PREVIEW_LENGTH;
+    private final PiecePreview preview = new PiecePreview(this);
+
+    private final Randomizer randomizer;
 
     /**
-     * Constructs a new <code>PieceOrder</code> instance, generates the upcoming pieces.
+     * Constructs a new <code>PieceOrder</code> instance with a 7-bag randomizer and a random seed, generates the upcoming pieces.
      */
     public PieceOrder() {
-        currentPieceList = new LinkedList<>();
-        nextPieceList = new LinkedList<>();
-        pieceTypes = new ArrayList<>();
-        heldPiece = null;
+        this(ThreadLocalRandom.current().nextLong());
+    }
 
-        fillList(currentPieceList);
-        fillList(nextPieceList);
+    /**
+     * Constructs a new <code>PieceOrder</code> instance with a 7-bag randomizer, generates the upcoming pieces.
+     * Instances constructed with the same seed generate the same order of pieces.
+     *
+     * @param seed the seed of the random piece order
+     */
+    public PieceOrder(long seed) {
+        this(Randomizer.sevenBag(seed));
     }
 
     /**
-     * Fills the list with a set of pieces in a random order.
-     * The list will contain 1 of each piece type.
+     * Constructs a new <code>PieceOrder</code> instance, generates the upcoming pieces.
      *
-     * @param list the list to be filled
-     */
-    private void fillList(LinkedList<Piece> list) {
-        generatePieces();
-        Random random = new Random();
-        int addedPieceIndex;
-        for (int i = pieceTypes.size(); i > 0; i--) {
-            addedPieceIndex = random.nextInt(i);
-            list.add(pieceTypes.get(addedPieceIndex));
-            pieceTypes.remove(addedPieceIndex);
-        }
+     * @param randomizer the randomizer generating the order of the pieces, used only by this instance
+     */
+    public PieceOrder(Randomizer randomizer) {
+        this.randomizer = randomizer;
+        heldPiece = null;
+        fillQueue();
     }
 
     /**
-     * Generates a new set of pieces for use when filling a list with pieces.
-     * Called by the <code>fillList()</code> method, there's otherwise no need to call it.
+     * Adds a set of pieces to the end of the queue whenever there aren't more pieces than the longest preview.
      */
-    private void generatePieces() {
-        pieceTypes.add(new PieceI());
-        pieceTypes.add(new PieceO());
-        pieceTypes.add(new PieceT());
-        pieceTypes.add(new PieceS());
-        pieceTypes.add(new PieceZ());
-        pieceTypes.add(new PieceJ());
-        pieceTypes.add(new PieceL());
+    private void fillQueue() {
+        while (size <= MAX_PREVIEW_LENGTH) {
+            int tail = (head + size) & MASK;
+            int count = Math.min(GameState.PIECE_COUNT, CAPACITY - tail);
+            randomizer.fill(upcomingPieces, tail, count);
+            randomizer.fill(upcomingPieces, 0, GameState.PIECE_COUNT - count);
+            size += GameState.PIECE_COUNT;
+        }
     }
 
     /**
-     * Puts the piece into the "hold" position.
+     * Puts the piece type into the "hold" position.
      * If there's no piece in hold, the next upcoming piece will be returned and removed from the upcoming pieces list.
      * If there already is a piece in hold, the piece in hold will be returned and the given piece will replace its spot.
-     * The pieces' positions are reset.
      *
-     * @param piece
-     * @return the held piece/the upcoming piece
+     * @param piece the type of the piece to be held
+     * @return the type of the held piece/the upcoming piece
      */
-    public Piece hold(Piece piece) {
-        Piece rtrnPiece;
+    public PieceType hold(PieceType piece) {
+        PieceType rtrnPiece;
         if (heldPiece != null) {
             rtrnPiece = heldPiece;
-            rtrnPiece.calculateGravityCount();
             heldPiece = piece;
-            heldPiece.setAlreadyHeld();
-            heldPiece.setPlaceDelay(false);
-            heldPiece.resetTiles();
-            return rtrnPiece;
         } else {
             heldPiece = piece;
-            heldPiece.setAlreadyHeld();
-            heldPiece.resetTiles();
             rtrnPiece = getNextPiece();
-            rtrnPiece.setAlreadyHeld();
-            rtrnPiece.calculateGravityCount();
             removePiece();
-            return rtrnPiece;
         }
+        return rtrnPiece;
     }
 
     /**
-     * Returns the next upcoming piece.
+     * Returns the type of the next upcoming piece.
      *
-     * @return the upcoming piece
+     * @return the upcoming piece's type
      */
-    public Piece getNextPiece() {
-        Piece piece = currentPieceList.getFirst();
-        piece.calculateGravityCount();
-        return piece;
+    public PieceType getNextPiece() {
+        return PieceType.fromId(upcomingPieces[head]);
     }
 
     /**
-     * Removes the next upcoming piece from the list.
-     * If the piece was the last in the current set, the set will be replaced with the next set, and a new set of pieces will be generated.
+     * Removes the next upcoming piece from the queue.
+     * If the queue gets too short for the longest preview, a new set of pieces is generated.
      */
     public void removePiece() {
-        currentPieceList.removeFirst();
-        if (currentPieceList.size() <= 0) {
-            currentPieceList = nextPieceList;
-            nextPieceList = new LinkedList<>();
-            fillList(nextPieceList);
-        }
+        head = (head + 1) & MASK;
+        size--;
+        fillQueue();
     }
 
     /**
-     * Returns the next 6 upcoming pieces.
-     * Used for displaying the upcoming pieces in a <code>GameRightJPanel</code> instance.
+     * Returns the id of the upcoming piece at the given position.
+     * The next piece is at index 0.
      *
-     * @return the next 6 upcoming pieces
+     * @param index the piece's position in the queue, less than <code>MAX_PREVIEW_LENGTH</code>
+     * @return the piece's id
+     * @throws IndexOutOfBoundsException if the index is outside the generated pieces
      */
-    public LinkedList<Piece> getPieceOrder() {
-        LinkedList<Piece> pieceOrder = new LinkedList<>();
+    public int peekPieceId(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Piece index out of bounds: " + index);
+        return upcomingPieces[(head + index) & MASK];
+    }
 
-        pieceOrder.addAll(currentPieceList);
-        if (pieceOrder.size() >= 6) {
-            if (pieceOrder.size() > 6) {
-                pieceOrder.removeLast();
-            }
-            return pieceOrder;
-        }
+    /**
+     * Returns a read-only view of the upcoming pieces, starting with the next piece.
+     * The view always shows the current pieces, it is the same instance for the whole game.
+     *
+     * @return the preview of the upcoming pieces
+     */
+    public PiecePreview getPreview() {
+        return preview;
+    }
+
+    public int getPreviewLength() {
+        return previewLength;
+    }
 
-        int remainingPieceCount = GameState.PIECE_COUNT - 1 - pieceOrder.size();
-        for (Piece piece : nextPieceList) {
-            if (remainingPieceCount <= 0) break;
-            remainingPieceCount--;
-            pieceOrder.add(piece);
+    /**
+     * Sets the amount of upcoming pieces shown by the preview.
+     *
+     * @param previewLength the amount of pieces, between <code>MIN_PREVIEW_LENGTH</code> and <code>MAX_PREVIEW_LENGTH</code>
+     * @throws IllegalArgumentException if the amount is out of range
+     */
+    public void setPreviewLength(int previewLength) throws IllegalArgumentException {
+        if (previewLength < MIN_PREVIEW_LENGTH || previewLength > MAX_PREVIEW_LENGTH) throw new IllegalArgumentException("Preview length out of range!");
+        this.previewLength = previewLength;
+    }
+
+    /**
+     * Returns the kind of the randomizer generating the order of the pieces.
+     *
+     * @return the randomizer's kind, <code>null</code> if it isn't one of the standard kinds
+     */
+    public Randomizer.Kind getRandomizerKind() {
+        return randomizer.getKind();
+    }
+
+    /**
+     * Creates a new piece order in the same state with a copy of the randomizer, it deals the same pieces as this one.
+     *
+     * @return the copy
+     */
+    public PieceOrder copy() {
+        PieceOrder copy = new PieceOrder(randomizer.copy());
+        copyInto(copy);
+        return copy;
+    }
+
+    /**
+     * Copies this piece order's state into the given piece order without allocating anything.
+     *
+     * @param target a piece order with the same kind of randomizer
+     */
+    public void copyInto(PieceOrder target) {
+        System.arraycopy(upcomingPieces, 0, target.upcomingPieces, 0, CAPACITY);
+        target.head = head;
+        target.size = size;
+        target.heldPiece = heldPiece;
+        target.previewLength = previewLength;
+        randomizer.copyInto(target.randomizer);
+    }
+
+    /**
+     * Writes the held piece, the preview length, the generated upcoming pieces and the randomizer's state.
+     *
+     * @param buffer the buffer the state is written to
+     */
+    public void writeState(ByteBuffer buffer) {
+        buffer.put((byte) (heldPiece == null ? -1 : heldPiece.ordinal()));
+        buffer.put((byte) previewLength);
+        buffer.put((byte) size);
+        for (int i = 0; i < size; i++) {
+            buffer.put(upcomingPieces[(head + i) & MASK]);
         }
+        randomizer.writeState(buffer);
+    }
 
-        if (pieceOrder.size() != 6) throw new RuntimeException("Piece order size incorrect!");
-        return pieceOrder;
+    /**
+     * Restores the state written by <code>writeState()</code> of a piece order with the same kind of randomizer.
+     *
+     * @param buffer the buffer the state is read from
+     */
+    public void readState(ByteBuffer buffer) {
+        int heldPieceId = buffer.get();
+        heldPiece = heldPieceId < 0 ? null : PieceType.fromId(heldPieceId);
+        previewLength = buffer.get();
+        size = buffer.get();
+        head = 0;
+        buffer.get(upcomingPieces, 0, size);
+        randomizer.readState(buffer);
     }
 
-    public Piece getHeldPiece() {
+    /**
+     * Returns the type of the piece in hold.
+     *
+     * @return the held piece's type, <code>null</code> if no piece is held
+     */
+    public PieceType getHeldPiece() {
         return this.heldPiece;
     }
 }
@@ -0,0 +1,55 @@
+package game.pieces;
+
+/**
+ * A read-only view of the upcoming pieces of a <code>PieceOrder</code>, as shown in the game's preview.
+ * The view reads the pieces straight from the piece order's queue, nothing is copied or allocated.
+ * The first piece of the preview is the next piece.
+ */
+public class PiecePreview {
+
+    private final PieceOrder pieceOrder;
+
+    /**
+     * Constructs a new <code>PiecePreview</code> instance.
+     *
+     * @param pieceOrder the piece order whose upcoming pieces are shown
+     */
+    PiecePreview(PieceOrder pieceOrder) {
+        this.pieceOrder = pieceOrder;
+    }
+
+    /**
+     * Returns the amount of pieces in the preview.
+     *
+     * @return the piece order's preview length
+     */
+    public int size() {
+        return pieceOrder.getPreviewLength();
+    }
+
+    /**
+     * Returns the id of the piece at the given position in the preview.
+     *
+     * @param index the piece's position, less than <code>size()</code>
+     * @return the piece's id
+     * @throws IndexOutOfBoundsException if the index is outside the preview
+     */
+    public int getPieceId(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Preview index out of bounds: " + index);
+        return pieceOrder.peekPieceId(index);
+    }
+
+    /**
+     * Copies the ids of the pieces in the preview into the given array, e.g. to hand them to another thread.
+     *
+     * @param ids the array to copy into, at least <code>size()</code> long
+     * @return the amount of ids copied
+     */
+    public int copyPieceIds(byte[] ids) {
+        int size = size();
+        for (int i = 0; i < size; i++) {
+            ids[i] = (byte) getPieceId(i);
+        }
+        return size;
+    }
+}
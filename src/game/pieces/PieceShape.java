@@ -0,0 +1,219 @@
+package game.pieces;
+
+import java.util.Arrays;
+
+/**
+ * A <code>PieceShape</code> instance holds the precomputed rotation states and wall kicks of a piece type.
+ * The tiles of each rotation state are given relative to the top left corner of the piece's bounding box, as defined by the
+ * Super Rotation System (SRS). Each rotation state is also stored as one bitmask per row of the bounding box (bit <code>x</code>
+ * set means column <code>x</code> of the box is occupied), which can be shifted and compared with the rows of a <code>Board</code>.
+ * The instances are immutable and shared by all pieces of the same type.
+ */
+public class PieceShape {
+
+    public static final int TILE_COUNT = 4;
+    public static final int ROTATION_COUNT = 4;
+    public static final int KICK_TEST_COUNT = 5;
+
+    /**
+     * The SRS wall kicks of the J, L, S, T and Z pieces, indexed by the rotation state the piece rotates from and the direction
+     * (0 - Clockwise; 1 - Counter-clockwise). Each test is an x, y pair, y grows downwards.
+     */
+    public static final int[][][] JLSTZ_KICKS = {
+            {{0, 0, -1, 0, -1, -1, 0, 2, -1, 2}, {0, 0, 1, 0, 1, -1, 0, 2, 1, 2}},
+            {{0, 0, 1, 0, 1, 1, 0, -2, 1, -2}, {0, 0, 1, 0, 1, 1, 0, -2, 1, -2}},
+            {{0, 0, 1, 0, 1, -1, 0, 2, 1, 2}, {0, 0, -1, 0, -1, -1, 0, 2, -1, 2}},
+            {{0, 0, -1, 0, -1, 1, 0, -2, -1, -2}, {0, 0, -1, 0, -1, 1, 0, -2, -1, -2}}
+    };
+
+    /**
+     * The SRS wall kicks of the I piece, indexed the same way.
+     */
+    public static final int[][][] I_KICKS = {
+            {{0, 0, -2, 0, 1, 0, -2, 1, 1, -2}, {0, 0, -1, 0, 2, 0, -1, -2, 2, 1}},
+            {{0, 0, -1, 0, 2, 0, -1, -2, 2, 1}, {0, 0, 2, 0, -1, 0, 2, -1, -1, 2}},
+            {{0, 0, 2, 0, -1, 0, 2, -1, -1, 2}, {0, 0, 1, 0, -2, 0, 1, 2, -2, -1}},
+            {{0, 0, 1, 0, -2, 0, 1, 2, -2, -1}, {0, 0, -2, 0, 1, 0, -2, 1, 1, -2}}
+    };
+
+    /**
+     * Wall kicks for pieces whose rotation never needs to be kicked, i.e. the O piece.
+     */
+    public static final int[][][] NO_KICKS = {
+            {{0, 0}, {0, 0}},
+            {{0, 0}, {0, 0}},
+            {{0, 0}, {0, 0}},
+            {{0, 0}, {0, 0}}
+    };
+
+    private final int size;
+    private final int[][] tileX;
+    private final int[][] tileY;
+    private final int[][] rowMasks;
+    private final int[] minX;
+    private final int[] maxX;
+    private final int[] minY;
+    private final int[] maxY;
+    private final int[][] columnBottoms;
+    private final int[][][] kicks;
+    private final int spawnX;
+    private final int spawnY;
+
+    /**
+     * Constructs a new <code>PieceShape</code> instance.
+     * The remaining rotation states are computed by rotating the spawn state clockwise inside the bounding box.
+     *
+     * @param size       the width and height of the bounding box
+     * @param spawnTiles the x, y pairs of the tiles in the spawn state
+     * @param kicks      the wall kicks, indexed by the rotation state and the direction
+     * @param spawnX     the column of the bounding box when the piece spawns
+     * @param spawnY     the row of the bounding box when the piece spawns
+     */
+    public PieceShape(int size, int[][] spawnTiles, int[][][] kicks, int spawnX, int spawnY) {
+        this.size = size;
+        this.kicks = kicks;
+        this.spawnX = spawnX;
+        this.spawnY = spawnY;
+
+        tileX = new int[ROTATION_COUNT][TILE_COUNT];
+        tileY = new int[ROTATION_COUNT][TILE_COUNT];
+        for (int i = 0; i < TILE_COUNT; i++) {
+            tileX[0][i] = spawnTiles[i][0];
+            tileY[0][i] = spawnTiles[i][1];
+        }
+        for (int rotation = 1; rotation < ROTATION_COUNT; rotation++) {
+            for (int i = 0; i < TILE_COUNT; i++) {
+                tileX[rotation][i] = size - 1 - tileY[rotation - 1][i];
+                tileY[rotation][i] = tileX[rotation - 1][i];
+            }
+        }
+
+        rowMasks = new int[ROTATION_COUNT][size];
+        minX = new int[ROTATION_COUNT];
+        maxX = new int[ROTATION_COUNT];
+        minY = new int[ROTATION_COUNT];
+        maxY = new int[ROTATION_COUNT];
+        columnBottoms = new int[ROTATION_COUNT][size];
+        for (int rotation = 0; rotation < ROTATION_COUNT; rotation++) {
+            minX[rotation] = size;
+            minY[rotation] = size;
+            Arrays.fill(columnBottoms[rotation], -1);
+            for (int i = 0; i < TILE_COUNT; i++) {
+                columnBottoms[rotation][tileX[rotation][i]] = Math.max(columnBottoms[rotation][tileX[rotation][i]], tileY[rotation][i]);
+                rowMasks[rotation][tileY[rotation][i]] |= 1 << tileX[rotation][i];
+                minX[rotation] = Math.min(minX[rotation], tileX[rotation][i]);
+                maxX[rotation] = Math.max(maxX[rotation], tileX[rotation][i]);
+                minY[rotation] = Math.min(minY[rotation], tileY[rotation][i]);
+                maxY[rotation] = Math.max(maxY[rotation], tileY[rotation][i]);
+            }
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the column of the tile relative to the bounding box.
+     *
+     * @param rotation the rotation state
+     * @param tile     the tile's index
+     * @return the tile's column
+     */
+    public int getTileX(int rotation, int tile) {
+        return tileX[rotation][tile];
+    }
+
+    /**
+     * Returns the row of the tile relative to the bounding box.
+     *
+     * @param rotation the rotation state
+     * @param tile     the tile's index
+     * @return the tile's row
+     */
+    public int getTileY(int rotation, int tile) {
+        return tileY[rotation][tile];
+    }
+
+    /**
+     * Returns the bitmask of the given row of the bounding box.
+     *
+     * @param rotation the rotation state
+     * @param row      the row relative to the bounding box
+     * @return the row's bitmask (bit <code>x</code> set means column <code>x</code> of the box is occupied)
+     */
+    public int getRowMask(int rotation, int row) {
+        return rowMasks[rotation][row];
+    }
+
+    /**
+     * Returns the leftmost occupied column of the bounding box.
+     *
+     * @param rotation the rotation state
+     * @return the leftmost column
+     */
+    public int getMinX(int rotation) {
+        return minX[rotation];
+    }
+
+    /**
+     * Returns the rightmost occupied column of the bounding box.
+     *
+     * @param rotation the rotation state
+     * @return the rightmost column
+     */
+    public int getMaxX(int rotation) {
+        return maxX[rotation];
+    }
+
+    /**
+     * Returns the topmost occupied row of the bounding box.
+     *
+     * @param rotation the rotation state
+     * @return the topmost row
+     */
+    public int getMinY(int rotation) {
+        return minY[rotation];
+    }
+
+    /**
+     * Returns the bottommost occupied row of the bounding box.
+     *
+     * @param rotation the rotation state
+     * @return the bottommost row
+     */
+    public int getMaxY(int rotation) {
+        return maxY[rotation];
+    }
+
+    /**
+     * Returns the bottommost occupied row of the given column of the bounding box.
+     *
+     * @param rotation the rotation state
+     * @param column   the column relative to the bounding box
+     * @return the column's bottommost row, -1 if the column is empty
+     */
+    public int getColumnBottom(int rotation, int column) {
+        return columnBottoms[rotation][column];
+    }
+
+    /**
+     * Returns the wall kick tests of the given rotation.
+     * The tests are x, y pairs which are tried in order until the rotated piece fits.
+     *
+     * @param rotation  the rotation state the piece rotates from
+     * @param direction the direction of the rotation (1 - Clockwise; -1 - Counter-clockwise)
+     * @return the wall kick tests
+     */
+    public int[] getKicks(int rotation, int direction) {
+        return kicks[rotation][direction == 1 ? 0 : 1];
+    }
+
+    public int getSpawnX() {
+        return spawnX;
+    }
+
+    public int getSpawnY() {
+        return spawnY;
+    }
+}
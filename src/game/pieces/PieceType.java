@@ -0,0 +1,57 @@
+package game.pieces;
+
+/**
+ * The 7 piece types of the game.
+ * Each type holds the immutable data shared by all pieces of that type: the rotation states and wall kicks in its
+ * <code>PieceShape</code> and its color. The ordinals are the pieces' ids and match the order of the piece textures
+ * (I, J, L, O, S, T, Z), so the data indexed by piece id can be looked up with <code>ordinal()</code>.
+ */
+public enum PieceType {
+    I(new PieceShape(4, new int[][]{{0, 1}, {1, 1}, {2, 1}, {3, 1}}, PieceShape.I_KICKS, 3, -1), 0x00FFFF),
+    J(new PieceShape(3, new int[][]{{0, 0}, {0, 1}, {1, 1}, {2, 1}}, PieceShape.JLSTZ_KICKS, 3, 0), 0x0000FF),
+    L(new PieceShape(3, new int[][]{{2, 0}, {0, 1}, {1, 1}, {2, 1}}, PieceShape.JLSTZ_KICKS, 3, 0), 0xFFC800),
+    O(new PieceShape(2, new int[][]{{0, 0}, {1, 0}, {0, 1}, {1, 1}}, PieceShape.NO_KICKS, 4, 0), 0xFFFF00),
+    S(new PieceShape(3, new int[][]{{1, 0}, {2, 0}, {0, 1}, {1, 1}}, PieceShape.JLSTZ_KICKS, 3, 0), 0x00FF00),
+    T(new PieceShape(3, new int[][]{{1, 0}, {0, 1}, {1, 1}, {2, 1}}, PieceShape.JLSTZ_KICKS, 3, 0), 0xFF00FF),
+    Z(new PieceShape(3, new int[][]{{0, 0}, {1, 0}, {1, 1}, {2, 1}}, PieceShape.JLSTZ_KICKS, 3, 0), 0xFF0000);
+
+    private static final PieceType[] TYPES = values();
+
+    private final PieceShape shape;
+    private final int color;
+
+    /**
+     * Constructs a piece type.
+     *
+     * @param shape the rotation states and wall kicks
+     * @param color the color as a 24-bit RGB value
+     */
+    PieceType(PieceShape shape, int color) {
+        this.shape = shape;
+        this.color = color;
+    }
+
+    /**
+     * Returns the piece type with the given id without copying <code>values()</code>.
+     *
+     * @param id the piece's id
+     * @return the piece type
+     * @throws ArrayIndexOutOfBoundsException if the id isn't a piece id
+     */
+    public static PieceType fromId(int id) throws ArrayIndexOutOfBoundsException {
+        return TYPES[id];
+    }
+
+    public PieceShape getShape() {
+        return shape;
+    }
+
+    /**
+     * Returns the color of the pieces of this type.
+     *
+     * @return the color as a 24-bit RGB value
+     */
+    public int getColor() {
+        return color;
+    }
+}
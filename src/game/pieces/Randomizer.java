@@ -0,0 +1,133 @@
+package game.pieces;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Generates the order of the pieces of a game as a stream of piece ids.
+ * Randomizers are seeded, so randomizers of the same kind created with the same seed generate the same pieces. A randomizer
+ * can be split into an independent randomizer of the same kind, e.g. to give each thread of a simulation its own
+ * reproducible stream. The state of a randomizer can be saved and restored, e.g. to resume a game or to seek in a replay.
+ * Randomizers are not thread-safe.
+ */
+public interface Randomizer {
+
+    /**
+     * The most bytes <code>writeState()</code> may write.
+     */
+    int MAX_STATE_SIZE = 32;
+
+    /**
+     * The kinds of randomizers created by the factory methods, e.g. to record which kind generated a game's pieces.
+     */
+    enum Kind {
+        SEVEN_BAG, FOURTEEN_BAG, HISTORY;
+
+        /**
+         * Creates a randomizer of this kind.
+         *
+         * @param seed the seed of the random piece order
+         * @return the randomizer
+         */
+        public Randomizer create(long seed) {
+            return switch (this) {
+                case SEVEN_BAG -> sevenBag(seed);
+                case FOURTEEN_BAG -> fourteenBag(seed);
+                case HISTORY -> history(seed);
+            };
+        }
+    }
+
+    /**
+     * Generates the next piece.
+     *
+     * @return the id of the next piece
+     */
+    int next();
+
+    /**
+     * Generates the given amount of pieces into the given array.
+     *
+     * @param ids    the array the piece ids are written to
+     * @param offset the index of the first piece in the array
+     * @param length the amount of pieces to be generated
+     */
+    default void fill(byte[] ids, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            ids[i] = (byte) next();
+        }
+    }
+
+    /**
+     * Returns the kind of this randomizer.
+     *
+     * @return the randomizer's kind, <code>null</code> if it isn't one of the kinds created by the factory methods
+     */
+    Kind getKind();
+
+    /**
+     * Creates a new randomizer of the same kind whose stream is independent of this randomizer's.
+     * Splitting advances this randomizer's random number generator, so it is reproducible as well.
+     *
+     * @return the new randomizer
+     */
+    Randomizer split();
+
+    /**
+     * Creates a new randomizer of the same kind in the same state, it generates the same pieces as this one.
+     *
+     * @return the copy
+     */
+    Randomizer copy();
+
+    /**
+     * Copies this randomizer's state into the given randomizer without allocating anything.
+     *
+     * @param target a randomizer of the same kind
+     * @throws ClassCastException if the target is a different kind of randomizer
+     */
+    void copyInto(Randomizer target) throws ClassCastException;
+
+    /**
+     * Writes the randomizer's state, a randomizer of the same kind restored from it generates the same pieces as this one.
+     *
+     * @param buffer the buffer the state is written to
+     */
+    void writeState(ByteBuffer buffer);
+
+    /**
+     * Restores the state written by <code>writeState()</code> of a randomizer of the same kind.
+     *
+     * @param buffer the buffer the state is read from
+     */
+    void readState(ByteBuffer buffer);
+
+    /**
+     * Creates the standard randomizer, which deals the pieces from shuffled bags of 1 piece of each type.
+     *
+     * @param seed the seed of the random piece order
+     * @return the 7-bag randomizer
+     */
+    static Randomizer sevenBag(long seed) {
+        return new BagRandomizer(new SplitMix64(seed), 1);
+    }
+
+    /**
+     * Creates a randomizer which deals the pieces from shuffled bags of 2 pieces of each type.
+     *
+     * @param seed the seed of the random piece order
+     * @return the 14-bag randomizer
+     */
+    static Randomizer fourteenBag(long seed) {
+        return new BagRandomizer(new SplitMix64(seed), 2);
+    }
+
+    /**
+     * Creates a randomizer which rerolls pieces that are among the last 4 generated pieces, as in The Grand Master.
+     *
+     * @param seed the seed of the random piece order
+     * @return the history randomizer
+     */
+    static Randomizer history(long seed) {
+        return new HistoryRandomizer(new SplitMix64(seed));
+    }
+}
@@ -0,0 +1,88 @@
+package game.pieces;
+
+/**
+ * A <code>SplitMix64</code> instance is a small, fast random number generator whose whole state is a single <code>long</code>.
+ * It produces the same values as a <code>java.util.SplittableRandom</code> with the same seed, but its state can be read and
+ * restored, so a game's piece order can be saved and resumed at any point.
+ * Generators are not thread-safe.
+ */
+public class SplitMix64 {
+
+    /**
+     * The increment of the state for every generated value, the odd 64-bit fraction of the golden ratio.
+     */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    /**
+     * Constructs a new <code>SplitMix64</code> instance.
+     *
+     * @param seed the seed, also the initial state
+     */
+    public SplitMix64(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Generates a random <code>long</code>.
+     *
+     * @return the value
+     */
+    public long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Generates a random <code>int</code>.
+     *
+     * @return the value
+     */
+    public int nextInt() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 33)) * 0x62A9D9ED799705F5L;
+        return (int) (((z ^ (z >>> 28)) * 0xCB24D0A5C88C35B3L) >>> 32);
+    }
+
+    /**
+     * Generates a random <code>int</code> between 0 (inclusive) and the bound (exclusive) without modulo bias.
+     * Values from the top of the range that would make some results more likely are rejected and generated again.
+     *
+     * @param bound the bound, positive
+     * @return the value
+     * @throws IllegalArgumentException if the bound isn't positive
+     */
+    public int nextInt(int bound) throws IllegalArgumentException {
+        if (bound <= 0) throw new IllegalArgumentException("Bound must be positive!");
+        int r = nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0) return r & m;
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1) ;
+        return r;
+    }
+
+    /**
+     * Creates a new generator seeded by this generator, whose values are independent of this generator's.
+     *
+     * @return the new generator
+     */
+    public SplitMix64 split() {
+        return new SplitMix64(nextLong());
+    }
+
+    /**
+     * Returns the generator's state, restoring it with <code>setState()</code> makes the generator repeat the following values.
+     *
+     * @return the state
+     */
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,238 @@
+package game.replay;
+
+import game.Input;
+import game.pieces.Randomizer;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A <code>Replay</code> instance holds a recorded game: the seed and the randomizer kind of its piece order, its auto repeat
+ * timing, the inputs carried out during the game, each stamped with the tick before which it was applied, and periodic
+ * keyframes of the game's whole state.
+ * <p>
+ * A replay file starts with a header (magic number, format version, 8 byte seed, the randomizer's
+ * <code>Randomizer.Kind</code> ordinal as a byte, auto repeat delay and rate), followed by the events. Each event is the amount of ticks since the previous event as a varint, followed by the event's code:
+ * an <code>Input</code>'s ordinal, <code>MOVE_TO_COLUMN</code> followed by the target column as a varint,
+ * <code>KEYFRAME</code> followed by the length of the game's state as a short and the state written by
+ * <code>GameState.writeState()</code>, or <code>END</code>.
+ * The events are followed by the keyframe index (the tick and the file offset of each keyframe's state as longs) and the
+ * trailer: the final tick, the final score, the amount of keyframes and the CRC32 of all preceding bytes.
+ * <p>
+ * The file is memory-mapped, the events are decoded only while the replay is played, and a keyframe is found with a binary
+ * search in the index at the end of the file.
+ */
+public class Replay {
+
+    static final int MAGIC = 0x54525031;
+    static final int VERSION = 3;
+
+    /**
+     * The event code of a <code>GameState.moveToColumn()</code> call.
+     */
+    public static final int MOVE_TO_COLUMN = 0x40;
+
+    static final int KEYFRAME = 0x7E;
+    static final int END = 0x7F;
+
+    static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+    static final int TRAILER_SIZE = Long.BYTES + 3 * Integer.BYTES;
+
+    private final ByteBuffer data;
+    private final int eventsOffset;
+    private final int indexOffset;
+
+    private final long seed;
+    private final Randomizer.Kind randomizerKind;
+    private final int autoRepeatDelay;
+    private final int autoRepeatRate;
+
+    private final int keyframeCount;
+    private final long finalTick;
+    private final int finalScore;
+
+    /**
+     * Constructs a new <code>Replay</code> instance.
+     */
+    private Replay(ByteBuffer data, int eventsOffset, int indexOffset, long seed, Randomizer.Kind randomizerKind,
+                   int autoRepeatDelay, int autoRepeatRate, int keyframeCount, long finalTick, int finalScore) {
+        this.data = data;
+        this.eventsOffset = eventsOffset;
+        this.indexOffset = indexOffset;
+        this.seed = seed;
+        this.randomizerKind = randomizerKind;
+        this.autoRepeatDelay = autoRepeatDelay;
+        this.autoRepeatRate = autoRepeatRate;
+        this.keyframeCount = keyframeCount;
+        this.finalTick = finalTick;
+        this.finalScore = finalScore;
+    }
+
+    /**
+     * Maps and verifies the replay file at the given path.
+     *
+     * @param path the replay file
+     * @return the replay
+     * @throws IOException if the file can't be read, its checksum doesn't match or it isn't a complete replay
+     */
+    public static Replay read(Path path) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = data.limit();
+        if (size < TRAILER_SIZE) throw new IOException("Replay too short: " + path);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(data.duplicate().limit(size - Integer.BYTES));
+        if ((int) checksum.getValue() != data.getInt(size - Integer.BYTES)) throw new IOException("Replay checksum mismatch: " + path);
+
+        try {
+            if (data.getInt() != MAGIC) throw new IOException("Not a replay: " + path);
+            int version = data.get();
+            if (version != VERSION) throw new IOException("Unsupported replay version " + version + ": " + path);
+            long seed = data.getLong();
+            int randomizerKind = data.get();
+            if (randomizerKind < 0 || randomizerKind >= Randomizer.Kind.values().length) throw new IOException("Unknown randomizer " + randomizerKind + ": " + path);
+            int autoRepeatDelay = (int) readVarLong(data);
+            int autoRepeatRate = (int) readVarLong(data);
+            int eventsOffset = data.position();
+
+            int trailerOffset = size - TRAILER_SIZE;
+            long finalTick = data.getLong(trailerOffset);
+            int finalScore = data.getInt(trailerOffset + Long.BYTES);
+            int keyframeCount = data.getInt(trailerOffset + Long.BYTES + Integer.BYTES);
+            long indexOffset = trailerOffset - (long) keyframeCount * INDEX_ENTRY_SIZE;
+            if (keyframeCount < 0 || indexOffset < eventsOffset) throw new IOException("Invalid replay index: " + path);
+
+            return new Replay(data, eventsOffset, (int) indexOffset, seed, Randomizer.Kind.values()[randomizerKind],
+                    autoRepeatDelay, autoRepeatRate, keyframeCount, finalTick, finalScore);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Replay truncated: " + path, e);
+        }
+    }
+
+    /**
+     * Writes the given value as an unsigned LEB128 varint, 7 bits per byte starting with the lowest bits.
+     *
+     * @param buffer the buffer to write to
+     * @param value  the non-negative value
+     */
+    static void writeVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint.
+     *
+     * @param buffer the buffer to read from
+     * @return the value
+     * @throws IllegalArgumentException if the varint is longer than 64 bits
+     */
+    static long readVarLong(ByteBuffer buffer) throws IllegalArgumentException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    /**
+     * Returns whether the given code is the code of an event applied to the game.
+     *
+     * @param code the event's code
+     * @return whether the code is an <code>Input</code>'s ordinal or <code>MOVE_TO_COLUMN</code>
+     */
+    static boolean isInputEvent(int code) {
+        return code == MOVE_TO_COLUMN || (code >= 0 && code < Input.values().length);
+    }
+
+    /**
+     * Returns a view of the events, positioned at the first event.
+     *
+     * @return the events
+     */
+    ByteBuffer getEvents() {
+        return data.duplicate().limit(indexOffset).position(eventsOffset);
+    }
+
+    /**
+     * Returns a view of the events, positioned at the game state of the keyframe at the given index.
+     * The events following the keyframe start right after the state.
+     *
+     * @param index the keyframe's index
+     * @return the events
+     */
+    ByteBuffer getKeyframe(int index) {
+        return data.duplicate().limit(indexOffset).position((int) data.getLong(indexOffset + index * INDEX_ENTRY_SIZE + Long.BYTES));
+    }
+
+    /**
+     * Returns the index of the last keyframe at or before the given tick.
+     *
+     * @param tick the tick
+     * @return the keyframe's index, -1 if there's no keyframe before the tick
+     */
+    public int findKeyframe(long tick) {
+        int low = 0;
+        int high = keyframeCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getKeyframeTick(middle) <= tick) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Returns the tick of the keyframe at the given index, i.e. the game's tick count when its state was recorded.
+     *
+     * @param index the keyframe's index
+     * @return the keyframe's tick
+     */
+    public long getKeyframeTick(int index) {
+        return data.getLong(indexOffset + index * INDEX_ENTRY_SIZE);
+    }
+
+    public int getKeyframeCount() {
+        return keyframeCount;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public Randomizer.Kind getRandomizerKind() {
+        return randomizerKind;
+    }
+
+    public int getAutoRepeatDelay() {
+        return autoRepeatDelay;
+    }
+
+    public int getAutoRepeatRate() {
+        return autoRepeatRate;
+    }
+
+    public long getFinalTick() {
+        return finalTick;
+    }
+
+    public int getFinalScore() {
+        return finalScore;
+    }
+}
@@ -0,0 +1,197 @@
+package game.replay;
+
+import game.GameListener;
+import game.GameLoop;
+import game.GameState;
+import game.Input;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A <code>ReplayPlayer</code> instance plays a recorded game back by feeding the recorded inputs into a new
+ * <code>GameState</code> with the recorded seed and kind of randomizer, at the same ticks they were applied at during the recording.
+ * The game can be played back in real time, e.g. to watch it, or headless as fast as possible, e.g. to verify its score or
+ * to benchmark the engine. Playback can seek to any tick: the game is restored from the nearest keyframe before the tick
+ * and only the remaining ticks are simulated.
+ */
+public class ReplayPlayer {
+
+    private final Replay replay;
+    private final GameState game;
+    private final ByteBuffer initialState;
+
+    private ByteBuffer events;
+    private long eventTick;
+    private int eventCode;
+    private int appliedEvents;
+
+    /**
+     * Constructs a new <code>ReplayPlayer</code> instance and starts the replayed game.
+     *
+     * @param replay   the replay to be played
+     * @param listener the listener the events of the replayed game are reported to
+     */
+    public ReplayPlayer(Replay replay, GameListener listener) {
+        this.replay = replay;
+        this.game = new GameState(listener, replay.getRandomizerKind().create(replay.getSeed()));
+        game.setAutoRepeat(replay.getAutoRepeatDelay(), replay.getAutoRepeatRate());
+        game.start();
+
+        initialState = ByteBuffer.allocate(GameState.MAX_STATE_SIZE);
+        game.writeState(initialState);
+        initialState.flip();
+        events = replay.getEvents();
+        readEvent();
+    }
+
+    /**
+     * Reads the next event's tick and code, skipping the keyframes.
+     */
+    private void readEvent() {
+        while (true) {
+            eventTick += Replay.readVarLong(events);
+            eventCode = events.get();
+            if (eventCode != Replay.KEYFRAME) break;
+            int stateLength = events.getShort();
+            events.position(events.position() + stateLength);
+        }
+        if (eventCode != Replay.END && !Replay.isInputEvent(eventCode)) throw new IllegalStateException("Invalid replay event " + eventCode);
+    }
+
+    /**
+     * Applies the events recorded before the current tick and advances the game by 1 tick.
+     *
+     * @return whether the replay continues, <code>false</code> once the game is over or the recording ended
+     */
+    public boolean step() {
+        if (isFinished()) return false;
+        long tick = game.getTicks();
+        while (eventCode != Replay.END && eventTick <= tick) {
+            if (eventCode == Replay.MOVE_TO_COLUMN) {
+                game.moveToColumn((int) Replay.readVarLong(events));
+            } else {
+                game.applyInput(Input.values()[eventCode]);
+            }
+            appliedEvents++;
+            readEvent();
+        }
+        game.tick();
+        return !isFinished();
+    }
+
+    /**
+     * Moves the playback to the given tick, forwards or backwards.
+     * If there's a keyframe between the current tick and the given tick, or if the given tick is in the past, the game is
+     * restored from the last keyframe before the given tick (or from its start) first, then the remaining ticks are played.
+     *
+     * @param tick the tick to move to, clamped to the length of the recording
+     */
+    public void seek(long tick) {
+        tick = Math.max(0, Math.min(tick, replay.getFinalTick()));
+        int keyframe = replay.findKeyframe(tick);
+        long keyframeTick = keyframe < 0 ? 0 : replay.getKeyframeTick(keyframe);
+        if (tick < game.getTicks() || keyframeTick > game.getTicks()) {
+            if (keyframe < 0) {
+                game.readState(initialState.duplicate());
+                events = replay.getEvents();
+            } else {
+                events = replay.getKeyframe(keyframe);
+                game.readState(events);
+            }
+            eventTick = keyframeTick;
+            appliedEvents = 0;
+            readEvent();
+        }
+        while (game.getTicks() < tick && step()) ;
+    }
+
+    /**
+     * Plays the rest of the replay without waiting between ticks.
+     */
+    public void playHeadless() {
+        while (step()) ;
+    }
+
+    /**
+     * Plays the rest of the replay at the game's normal speed on the calling thread.
+     *
+     * @param frameRenderer called after each tick, renders the game
+     */
+    public void playRealTime(Runnable frameRenderer) {
+        long nextTickTime = System.nanoTime();
+        while (step()) {
+            frameRenderer.run();
+            nextTickTime += GameLoop.NANOS_PER_TICK;
+            long sleepTime = nextTickTime - System.nanoTime();
+            if (sleepTime > 0) LockSupport.parkNanos(sleepTime);
+        }
+        frameRenderer.run();
+    }
+
+    /**
+     * Returns whether the replayed game ended with the same score at the same tick as the recorded game.
+     * Only meaningful once the replay is finished.
+     *
+     * @return whether the replay reproduced the recorded game
+     */
+    public boolean matchesRecording() {
+        return game.getTicks() == replay.getFinalTick() && game.getScore() == replay.getFinalScore();
+    }
+
+    /**
+     * Returns whether the game is over or reached the recording's final tick.
+     *
+     * @return whether the replay is finished
+     */
+    public boolean isFinished() {
+        return game.isGameOver() || game.getTicks() >= replay.getFinalTick();
+    }
+
+    /**
+     * Returns the amount of recorded inputs applied to the game since the playback started or since the game was last restored by
+     * <code>seek()</code>.
+     *
+     * @return the amount of applied inputs
+     */
+    public int getAppliedEvents() {
+        return appliedEvents;
+    }
+
+    public GameState getGame() {
+        return game;
+    }
+
+    /**
+     * Plays the given replay files headless, verifies their scores and prints the results.
+     *
+     * @param args the paths of the replay files
+     */
+    public static void main(String[] args) {
+        boolean allMatched = true;
+        for (String arg : args) {
+            Replay replay;
+            try {
+                replay = Replay.read(Path.of(arg));
+            } catch (IOException e) {
+                System.out.println(arg + ": " + e.getMessage());
+                allMatched = false;
+                continue;
+            }
+            ReplayPlayer player = new ReplayPlayer(replay, new GameListener() {
+            });
+            long startTime = System.nanoTime();
+            player.playHeadless();
+            long elapsedNanos = System.nanoTime() - startTime;
+
+            boolean matched = player.matchesRecording();
+            allMatched &= matched;
+            System.out.printf("%s: %s, score %d, %d ticks, %d inputs, %.1f ticks/ms%n", arg, matched ? "verified" : "MISMATCH",
+                    player.getGame().getScore(), player.getGame().getTicks(), player.getAppliedEvents(),
+                    player.getGame().getTicks() * 1_000_000.0 / Math.max(elapsedNanos, 1));
+        }
+        if (!allMatched) System.exit(1);
+    }
+}
@@ -0,0 +1,311 @@
+package game.replay;
+
+import game.GameState;
+import game.Input;
+import game.pieces.Randomizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.CRC32;
+
+/**
+ * A <code>ReplayWriter</code> instance records a game into a replay file in the format described by <code>Replay</code>.
+ * The events are encoded into a buffer on the recording thread, full buffers and buffers older than
+ * <code>FLUSH_INTERVAL_NANOS</code> are handed to a background executor, which creates the file and writes them to its
+ * channel. Recording never waits for the disk. The executor can be shared with other writes, e.g. the game's background
+ * writer, it only has to run the writes in order.
+ * Every <code>KEYFRAME_INTERVAL</code> ticks, the whole state of the game is recorded as a keyframe, the keyframes are listed
+ * in an index at the end of the file, so playback can seek without simulating the game from the start.
+ * The recording methods must be called from a single thread, e.g. the game loop's thread.
+ */
+public class ReplayWriter {
+
+    /**
+     * The amount of ticks between two keyframes.
+     */
+    public static final int KEYFRAME_INTERVAL = 10 * GameState.TICKS_PER_SECOND;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * The most bytes a single input event can take: a tick delta, the code and the target column.
+     */
+    private static final int MAX_EVENT_SIZE = 10 + 1 + 10;
+
+    private static final int MAX_KEYFRAME_SIZE = 10 + 1 + Short.BYTES + GameState.MAX_STATE_SIZE;
+
+    private static final long FLUSH_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final Executor flusher;
+    private final ExecutorService ownFlusher;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private FileChannel channel;
+    private final ConcurrentLinkedQueue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+    private final CRC32 checksum = new CRC32();
+
+    private ByteBuffer buffer;
+    private long submittedBytes;
+    private long previousTick;
+    private long lastFlushTime;
+    private boolean finished;
+    private volatile IOException error;
+
+    private long[] keyframeTicks = new long[64];
+    private long[] keyframeOffsets = new long[64];
+    private int keyframeCount;
+    private long lastKeyframeTick;
+
+    /**
+     * Constructs a new <code>ReplayWriter</code> instance with its own background thread and writes the replay's header.
+     *
+     * @param path            the replay file, its parent directories are created if needed
+     * @param seed            the seed of the game's piece order
+     * @param randomizerKind  the kind of the randomizer generating the game's piece order
+     * @param autoRepeatDelay the game's auto repeat delay
+     * @param autoRepeatRate  the game's auto repeat rate
+     * @throws IllegalArgumentException if the randomizer kind is <code>null</code>, i.e. not a standard kind
+     */
+    public ReplayWriter(Path path, long seed, Randomizer.Kind randomizerKind, int autoRepeatDelay, int autoRepeatRate) throws IllegalArgumentException {
+        this(path, seed, randomizerKind, autoRepeatDelay, autoRepeatRate, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Replay writer");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Constructs a new <code>ReplayWriter</code> instance and writes the replay's header.
+     * The file is created by the first write on the executor.
+     *
+     * @param path            the replay file, its parent directories are created if needed
+     * @param seed            the seed of the game's piece order
+     * @param randomizerKind  the kind of the randomizer generating the game's piece order
+     * @param autoRepeatDelay the game's auto repeat delay
+     * @param autoRepeatRate  the game's auto repeat rate
+     * @param executor        the executor the file is written on, it has to run the writes one at a time in order
+     * @throws IllegalArgumentException if the randomizer kind is <code>null</code>, i.e. not a standard kind
+     */
+    public ReplayWriter(Path path, long seed, Randomizer.Kind randomizerKind, int autoRepeatDelay, int autoRepeatRate,
+                        Executor executor) throws IllegalArgumentException {
+        this(path, seed, randomizerKind, autoRepeatDelay, autoRepeatRate, executor, false);
+    }
+
+    /**
+     * Constructs a new <code>ReplayWriter</code> instance, queues the creation of the file and writes the replay's header.
+     */
+    private ReplayWriter(Path path, long seed, Randomizer.Kind randomizerKind, int autoRepeatDelay, int autoRepeatRate,
+                         Executor executor, boolean ownExecutor) {
+        if (randomizerKind == null) throw new IllegalArgumentException("Only the standard randomizers can be replayed!");
+        flusher = executor;
+        ownFlusher = ownExecutor ? (ExecutorService) executor : null;
+        execute(() -> {
+            try {
+                Path directory = path.toAbsolutePath().getParent();
+                if (directory != null) Files.createDirectories(directory);
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                error = e;
+            }
+        });
+
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.putInt(Replay.MAGIC);
+        buffer.put((byte) Replay.VERSION);
+        buffer.putLong(seed);
+        buffer.put((byte) randomizerKind.ordinal());
+        Replay.writeVarLong(buffer, autoRepeatDelay);
+        Replay.writeVarLong(buffer, autoRepeatRate);
+        lastFlushTime = System.nanoTime();
+    }
+
+    /**
+     * Records an input applied to the game.
+     *
+     * @param tick  the game's tick count when the input was applied
+     * @param input the input
+     */
+    public void recordInput(long tick, Input input) {
+        beginEvent(tick, input.ordinal(), MAX_EVENT_SIZE);
+    }
+
+    /**
+     * Records a <code>GameState.moveToColumn()</code> call.
+     *
+     * @param tick   the game's tick count when the piece was moved
+     * @param column the target column
+     */
+    public void recordMoveToColumn(long tick, int column) {
+        beginEvent(tick, Replay.MOVE_TO_COLUMN, MAX_EVENT_SIZE);
+        Replay.writeVarLong(buffer, column);
+    }
+
+    /**
+     * Records the whole state of the game as a keyframe if <code>KEYFRAME_INTERVAL</code> ticks passed since the last one.
+     * Should be called before the inputs of each tick are applied.
+     *
+     * @param game the recorded game
+     */
+    public void recordKeyframe(GameState game) {
+        long tick = game.getTicks();
+        if (game.isGameOver() || tick - lastKeyframeTick < KEYFRAME_INTERVAL) return;
+        lastKeyframeTick = tick;
+
+        beginEvent(tick, Replay.KEYFRAME, MAX_KEYFRAME_SIZE);
+        int lengthPosition = buffer.position();
+        buffer.putShort((short) 0);
+        int stateStart = buffer.position();
+        game.writeState(buffer);
+        buffer.putShort(lengthPosition, (short) (buffer.position() - stateStart));
+
+        if (keyframeCount == keyframeTicks.length) {
+            keyframeTicks = Arrays.copyOf(keyframeTicks, keyframeCount * 2);
+            keyframeOffsets = Arrays.copyOf(keyframeOffsets, keyframeCount * 2);
+        }
+        keyframeTicks[keyframeCount] = tick;
+        keyframeOffsets[keyframeCount] = submittedBytes + stateStart;
+        keyframeCount++;
+    }
+
+    /**
+     * Makes room for an event and writes its tick delta and code.
+     *
+     * @param tick the event's tick
+     * @param code the event's code
+     * @param size the most bytes the event can take
+     */
+    private void beginEvent(long tick, int code, int size) {
+        if (finished) throw new IllegalStateException("Replay already finished!");
+        ensureRemaining(size);
+        Replay.writeVarLong(buffer, tick - previousTick);
+        buffer.put((byte) code);
+        previousTick = tick;
+    }
+
+    /**
+     * Hands the buffer to the background thread if fewer than the given amount of bytes remain in it.
+     *
+     * @param size the amount of bytes needed
+     */
+    private void ensureRemaining(int size) {
+        if (buffer.remaining() < size) submitBuffer();
+    }
+
+    /**
+     * Hands the buffer to the background thread if it has been holding events for longer than the flush interval.
+     * Should be called once per frame.
+     */
+    public void flushIfDue() {
+        if (finished || buffer.position() == 0) return;
+        if (System.nanoTime() - lastFlushTime >= FLUSH_INTERVAL_NANOS) submitBuffer();
+    }
+
+    /**
+     * Adds the buffer's contents to the checksum and hands the buffer to the background thread, which writes it to the file
+     * and returns it to the free buffers. Continues with a free buffer, or a new one if all of them are still being written.
+     */
+    private void submitBuffer() {
+        ByteBuffer filledBuffer = buffer;
+        filledBuffer.flip();
+        submittedBytes += filledBuffer.remaining();
+        checksum.update(filledBuffer.duplicate());
+        execute(() -> {
+            write(filledBuffer);
+            filledBuffer.clear();
+            freeBuffers.offer(filledBuffer);
+        });
+
+        buffer = freeBuffers.poll();
+        if (buffer == null) buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        lastFlushTime = System.nanoTime();
+    }
+
+    /**
+     * Writes the buffer's contents to the file, unless an earlier write failed.
+     * Called on the executor.
+     *
+     * @param writtenBuffer the buffer
+     */
+    private void write(ByteBuffer writtenBuffer) {
+        if (error != null) return;
+        try {
+            while (writtenBuffer.hasRemaining()) {
+                channel.write(writtenBuffer);
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * Queues a write on the executor. If the executor no longer accepts tasks, the replay is marked as failed.
+     *
+     * @param write the write
+     */
+    private void execute(Runnable write) {
+        try {
+            flusher.execute(write);
+        } catch (RejectedExecutionException e) {
+            error = new IOException("Replay writer was shut down", e);
+        }
+    }
+
+    /**
+     * Ends the recording: writes the end of the events, the keyframe index, the final tick and score and the checksum, then
+     * syncs and closes the file on the executor. Doesn't wait for the file to be written.
+     *
+     * @param tick  the game's final tick count
+     * @param score the game's final score
+     * @return the future completed once the replay is written, or completed exceptionally if any part of it couldn't be written
+     */
+    public CompletableFuture<Void> finish(long tick, int score) {
+        if (finished) return completion;
+        beginEvent(tick, Replay.END, MAX_EVENT_SIZE);
+        for (int i = 0; i < keyframeCount; i++) {
+            ensureRemaining(Replay.INDEX_ENTRY_SIZE);
+            buffer.putLong(keyframeTicks[i]);
+            buffer.putLong(keyframeOffsets[i]);
+        }
+        ensureRemaining(Replay.TRAILER_SIZE);
+        buffer.putLong(tick);
+        buffer.putInt(score);
+        buffer.putInt(keyframeCount);
+        finished = true;
+
+        ByteBuffer checksummed = buffer.duplicate();
+        checksummed.flip();
+        checksum.update(checksummed);
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+        ByteBuffer lastBuffer = buffer;
+        execute(() -> {
+            write(lastBuffer);
+            try {
+                if (channel != null) {
+                    if (error == null) channel.force(false);
+                    channel.close();
+                }
+            } catch (IOException e) {
+                if (error == null) error = e;
+            }
+            if (error == null) {
+                completion.complete(null);
+            } else {
+                completion.completeExceptionally(error);
+            }
+        });
+        if (error != null) completion.completeExceptionally(error);
+        if (ownFlusher != null) ownFlusher.shutdown();
+        return completion;
+    }
+}
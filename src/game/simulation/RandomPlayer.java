@@ -0,0 +1,38 @@
+package game.simulation;
+
+import game.GameState;
+import game.Input;
+import game.Player;
+
+import java.util.Random;
+
+/**
+ * A <code>Player</code> which rotates every piece a random amount of times, moves it to a random column and hard drops it.
+ * Players constructed with the same seed make the same moves.
+ */
+public class RandomPlayer implements Player {
+
+    private final Random random;
+
+    /**
+     * Constructs a new <code>RandomPlayer</code> instance.
+     *
+     * @param seed the seed of the player's moves
+     */
+    public RandomPlayer(long seed) {
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void pieceSpawned(GameState game) {
+        int rotations = random.nextInt(4);
+        for (int i = 0; i < rotations; i++) {
+            game.applyInput(Input.ROTATE_CLOCKWISE);
+        }
+        int moveAmount = random.nextInt(GameState.TILE_COUNT_X) - GameState.TILE_COUNT_X / 2;
+        for (int i = 0; i < Math.abs(moveAmount); i++) {
+            game.applyInput(moveAmount > 0 ? Input.MOVE_RIGHT : Input.MOVE_LEFT);
+        }
+        game.applyInput(Input.HARD_DROP);
+    }
+}
@@ -0,0 +1,64 @@
+package game.simulation;
+
+import game.GameListener;
+import game.GameState;
+import game.Player;
+
+/**
+ * A <code>SimulatedGame</code> instance plays a single game with a <code>Player</code> as fast as possible.
+ */
+public class SimulatedGame implements GameListener {
+
+    private final GameState game;
+    private final Player player;
+    private final int maxPieces;
+
+    private boolean pieceSpawned;
+    private int rowsCleared;
+
+    /**
+     * Constructs a new <code>SimulatedGame</code> instance.
+     *
+     * @param seed      the seed of the game's piece order
+     * @param player    the player playing the game
+     * @param maxPieces the amount of placed pieces after which the game is stopped
+     */
+    public SimulatedGame(long seed, Player player, int maxPieces) {
+        this.game = new GameState(this, seed);
+        this.player = player;
+        this.maxPieces = maxPieces;
+    }
+
+    /**
+     * Plays the game until it ends or until the maximum amount of pieces is placed.
+     * The game advances by ticks without waiting, the player is asked to move each time a new piece starts falling.
+     */
+    public void play() {
+        game.start();
+        while (!game.isGameOver() && game.getPlacedPieces() < maxPieces) {
+            if (pieceSpawned) {
+                pieceSpawned = false;
+                player.pieceSpawned(game);
+            }
+            game.tick();
+        }
+    }
+
+    @Override
+    public void piecesChanged() {
+        pieceSpawned = true;
+    }
+
+    @Override
+    public void rowsCleared(int rows) {
+        rowsCleared += Integer.bitCount(rows);
+    }
+
+    public GameState getGame() {
+        return game;
+    }
+
+    public int getRowsCleared() {
+        return rowsCleared;
+    }
+}
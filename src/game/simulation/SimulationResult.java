@@ -0,0 +1,127 @@
+package game.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Holds the results of a batch of simulated games.
+ * The results of each game are stored at the game's index, so they don't depend on the order in which the games were played.
+ */
+public class SimulationResult {
+
+    private final long[] seeds;
+    private final int[] scores;
+    private final int[] pieces;
+    private final int[] rowsCleared;
+    private long elapsedNanos;
+
+    /**
+     * Constructs a new <code>SimulationResult</code> instance for the given games.
+     *
+     * @param seeds the seeds of the games
+     */
+    SimulationResult(long[] seeds) {
+        this.seeds = seeds;
+        this.scores = new int[seeds.length];
+        this.pieces = new int[seeds.length];
+        this.rowsCleared = new int[seeds.length];
+    }
+
+    /**
+     * Saves the results of the finished game at the given index.
+     *
+     * @param index the game's index
+     * @param game  the finished game
+     */
+    void setGameResult(int index, SimulatedGame game) {
+        scores[index] = game.getGame().getScore();
+        pieces[index] = game.getGame().getPlacedPieces();
+        rowsCleared[index] = game.getRowsCleared();
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getGameCount() {
+        return seeds.length;
+    }
+
+    public long getSeed(int game) {
+        return seeds[game];
+    }
+
+    public int getScore(int game) {
+        return scores[game];
+    }
+
+    public int getPieces(int game) {
+        return pieces[game];
+    }
+
+    public int getRowsCleared(int game) {
+        return rowsCleared[game];
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the total amount of pieces placed in all games.
+     *
+     * @return the total amount of placed pieces
+     */
+    public long getTotalPieces() {
+        long total = 0;
+        for (int count : pieces) {
+            total += count;
+        }
+        return total;
+    }
+
+    public double getGamesPerSecond() {
+        return seeds.length * 1e9 / elapsedNanos;
+    }
+
+    public double getPiecesPerSecond() {
+        return getTotalPieces() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the average score of all games.
+     *
+     * @return the average score
+     */
+    public double getAverageScore() {
+        long total = 0;
+        for (int score : scores) {
+            total += score;
+        }
+        return (double) total / scores.length;
+    }
+
+    /**
+     * Returns the score below which the given percentage of the games' scores fall.
+     *
+     * @param percentile the percentage of games (0 - 100)
+     * @return the score at the given percentile
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100
+     */
+    public int getScorePercentile(double percentile) throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        int[] sortedScores = scores.clone();
+        Arrays.sort(sortedScores);
+        int index = (int) Math.ceil(percentile / 100 * sortedScores.length) - 1;
+        return sortedScores[Math.max(index, 0)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Games: %d (%.1f games/s)%n", seeds.length, getGamesPerSecond())
+                + String.format("Pieces: %d (%.1f pieces/s)%n", getTotalPieces(), getPiecesPerSecond())
+                + String.format("Time: %.3f s%n", elapsedNanos / 1e9)
+                + String.format("Score: average %.1f, min %d, p25 %d, median %d, p75 %d, p99 %d, max %d",
+                getAverageScore(), getScorePercentile(0), getScorePercentile(25), getScorePercentile(50),
+                getScorePercentile(75), getScorePercentile(99), getScorePercentile(100));
+    }
+}
@@ -0,0 +1,126 @@
+package game.simulation;
+
+import game.Player;
+import game.bot.BeamSearchBot;
+import game.bot.BoardEvaluator;
+import game.bot.PlacementBot;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongFunction;
+
+/**
+ * Plays a batch of independent games on multiple threads using a fork-join pool.
+ * Every game gets its own seed derived from the batch's seed, so running the same batch twice gives the same results
+ * no matter how many threads are used.
+ */
+public class SimulationRunner {
+
+    /**
+     * The amount of games below which a batch is no longer split between threads.
+     */
+    private static final int BATCH_THRESHOLD = 16;
+
+    private final int threads;
+    private final int maxPieces;
+    private final LongFunction<Player> playerFactory;
+
+    /**
+     * Constructs a new <code>SimulationRunner</code> instance.
+     *
+     * @param threads       the amount of threads used for playing the games
+     * @param maxPieces     the amount of placed pieces after which a game is stopped
+     * @param playerFactory creates the player of a game from the game's seed
+     */
+    public SimulationRunner(int threads, int maxPieces, LongFunction<Player> playerFactory) {
+        this.threads = threads;
+        this.maxPieces = maxPieces;
+        this.playerFactory = playerFactory;
+    }
+
+    /**
+     * Plays the given amount of games and returns their results.
+     *
+     * @param games the amount of games to be played
+     * @param seed  the seed from which the seeds of the individual games are derived
+     * @return the results of the games
+     */
+    public SimulationResult run(int games, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] seeds = new long[games];
+        for (int i = 0; i < games; i++) {
+            seeds[i] = random.nextLong();
+        }
+
+        SimulationResult result = new SimulationResult(seeds);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long startTime = System.nanoTime();
+        try {
+            pool.invoke(new GameBatch(result, 0, games));
+        } finally {
+            pool.shutdown();
+        }
+        result.setElapsedNanos(System.nanoTime() - startTime);
+        return result;
+    }
+
+    /**
+     * A range of games, which is split in half until it is small enough to be played on a single thread.
+     */
+    private class GameBatch extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SimulationResult result;
+        private final int start;
+        private final int end;
+
+        private GameBatch(SimulationResult result, int start, int end) {
+            this.result = result;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= BATCH_THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    long seed = result.getSeed(i);
+                    SimulatedGame game = new SimulatedGame(seed, playerFactory.apply(seed), maxPieces);
+                    game.play();
+                    result.setGameResult(i, game);
+                }
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new GameBatch(result, start, middle), new GameBatch(result, middle, end));
+        }
+    }
+
+    /**
+     * Plays a batch of games with <code>RandomPlayer</code>s, <code>PlacementBot</code>s or <code>BeamSearchBot</code>s and
+     * prints the results.
+     * The bots score their candidates on the thread of their game, since the games are already played in parallel, and the
+     * beam searches always search the whole preview, so the results don't depend on the speed of the machine.
+     * Arguments: [games] [seed] [threads] [max pieces per game] [player: random, bot, beam]
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int maxPieces = args.length > 3 ? Integer.parseInt(args[3]) : 100000;
+        String player = args.length > 4 ? args[4] : "random";
+
+        LongFunction<Player> playerFactory = switch (player) {
+            case "bot" -> gameSeed -> new PlacementBot(BoardEvaluator.DEFAULT, PlacementBot.DEFAULT_LOOKAHEAD, null);
+            case "beam" -> gameSeed -> new BeamSearchBot(BoardEvaluator.DEFAULT, BeamSearchBot.DEFAULT_BEAM_WIDTH,
+                    BeamSearchBot.DEFAULT_TABLE_CAPACITY, false);
+            default -> RandomPlayer::new;
+        };
+        SimulationRunner runner = new SimulationRunner(threads, maxPieces, playerFactory);
+        System.out.println(runner.run(games, seed));
+    }
+}
@@ -0,0 +1,122 @@
+package renderer;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+
+/**
+ * A <code>FrameBuffer</code> instance draws the frames of a <code>Canvas</code> off-screen and presents each of them at once.
+ * Page flipping is used if the graphics pipeline supports it, otherwise the frames are drawn to accelerated
+ * <code>VolatileImage</code> back buffers of a <code>BufferStrategy</code> and blitted to the screen.
+ * If the back buffers can't be accelerated, the frames are drawn to a <code>BufferedImage</code> instead.
+ * All frames have to be rendered from the same thread.
+ */
+public class FrameBuffer {
+
+    private static final int BUFFER_COUNT = 2;
+
+    private final Canvas canvas;
+    private BufferStrategy bufferStrategy;
+    private BufferedImage backBuffer;
+
+    /**
+     * Constructs a new <code>FrameBuffer</code> instance and creates the back buffers of the given canvas.
+     * The canvas must be displayable, i.e. added to a visible window.
+     *
+     * @param canvas the canvas the frames are presented on
+     * @throws IllegalStateException if the canvas isn't displayable
+     */
+    public FrameBuffer(Canvas canvas) throws IllegalStateException {
+        this.canvas = canvas;
+        if (!canvas.isDisplayable()) throw new IllegalStateException("Canvas not displayable!");
+        canvas.setIgnoreRepaint(true);
+        createBufferStrategy();
+    }
+
+    /**
+     * Creates the canvas's buffer strategy, preferring page flipping.
+     * Falls back to a <code>BufferedImage</code> back buffer if the buffer strategy isn't accelerated.
+     */
+    private void createBufferStrategy() {
+        ImageCapabilities accelerated = new ImageCapabilities(true);
+        try {
+            canvas.createBufferStrategy(BUFFER_COUNT, new BufferCapabilities(accelerated, accelerated, BufferCapabilities.FlipContents.UNDEFINED));
+        } catch (AWTException e) {
+            canvas.createBufferStrategy(BUFFER_COUNT);
+        }
+        bufferStrategy = canvas.getBufferStrategy();
+        if (!bufferStrategy.getCapabilities().getBackBufferCapabilities().isAccelerated()) {
+            bufferStrategy.dispose();
+            bufferStrategy = null;
+        }
+    }
+
+    /**
+     * Draws a frame with the given renderer and presents it on the canvas.
+     * If the contents of the accelerated back buffer are lost while drawing, the frame is drawn again.
+     *
+     * @param renderer draws the frame with the given <code>Graphics2D</code> instance
+     */
+    public void render(Consumer<Graphics2D> renderer) {
+        if (bufferStrategy == null) {
+            renderToImage(renderer);
+            return;
+        }
+        do {
+            do {
+                Graphics2D g2D = (Graphics2D) bufferStrategy.getDrawGraphics();
+                try {
+                    renderer.accept(g2D);
+                } finally {
+                    g2D.dispose();
+                }
+            } while (bufferStrategy.contentsRestored());
+            bufferStrategy.show();
+        } while (bufferStrategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    /**
+     * Draws a frame to the <code>BufferedImage</code> back buffer and copies it to the canvas.
+     *
+     * @param renderer draws the frame with the given <code>Graphics2D</code> instance
+     */
+    private void renderToImage(Consumer<Graphics2D> renderer) {
+        if (backBuffer == null || backBuffer.getWidth() != canvas.getWidth() || backBuffer.getHeight() != canvas.getHeight()) {
+            backBuffer = canvas.getGraphicsConfiguration().createCompatibleImage(Math.max(canvas.getWidth(), 1), Math.max(canvas.getHeight(), 1));
+        }
+        Graphics2D g2D = backBuffer.createGraphics();
+        try {
+            renderer.accept(g2D);
+        } finally {
+            g2D.dispose();
+        }
+        Graphics graphics = canvas.getGraphics();
+        if (graphics == null) return;
+        try {
+            graphics.drawImage(backBuffer, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    /**
+     * Returns whether the frames are presented with an accelerated buffer strategy, as opposed to a <code>BufferedImage</code>.
+     *
+     * @return whether the frames are accelerated
+     */
+    public boolean isAccelerated() {
+        return bufferStrategy != null;
+    }
+
+    /**
+     * Releases the back buffers.
+     */
+    public void dispose() {
+        if (bufferStrategy != null) bufferStrategy.dispose();
+        bufferStrategy = null;
+        backBuffer = null;
+    }
+}
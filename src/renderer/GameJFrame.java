@@ -1,41 +1,89 @@
 package renderer;
 
+import game.GameListener;
+import game.GameLoop;
 import game.GameState;
+import game.bot.BeamSearchBot;
+import game.pieces.PieceOrder;
+import game.pieces.PiecePreview;
+import game.pieces.PieceType;
+import game.replay.ReplayWriter;
 import util.DisplayInfo;
+import util.BackgroundWriter;
 import util.InputHandler;
+import util.Leaderboard;
+import util.ScoreRecord;
+import util.TextureCache;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The window used by the game. Contains a static instance of itself used for the game.
  */
-public class GameJFrame extends JFrame implements ActionListener, KeyListener {
+public class GameJFrame extends JFrame implements ActionListener, KeyListener, GameListener {
+
+    private static final String REPLAY_DIRECTORY = "save/replays";
+    private static final DateTimeFormatter REPLAY_FILE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
 
     private static GameJFrame window;
 
     private JPanel screenMenu;
     private JButton buttonStart;
+    private JButton buttonBot;
     private JButton buttonQuit;
 
     private JPanel screenGame;
-    private JPanel panelGameLeft;
+    private GameLeftJPanel panelGameLeft;
     private GameplayJPanel panelGameplay;
     private GameRightJPanel panelGameRight;
 
-    private JLabel labelGameLevel;
-    private JLabel labelGameScore;
-    private JLabel labelGameHighscore;
-    private JLabel labelGameTime;
-
     private Font gameFont;
 
     private boolean gameActive;
+    private boolean botPlaying;
+
+    private GameState game;
+    private GameLoop gameLoop;
+    private long seed;
+    private int highscore;
+
+    /**
+     * Writes all saved data in the background, so the event dispatch thread never waits for the disk.
+     */
+    private final BackgroundWriter persistence = new BackgroundWriter("Persistence", BackgroundWriter.SyncPolicy.BATCH);
+
+    /**
+     * The leaderboard, opened by the background writer. Only modified on the background writer's thread.
+     */
+    private volatile Leaderboard leaderboard;
+
+    /**
+     * The key of the task rewriting the leaderboard's index.
+     */
+    private static final Object LEADERBOARD_INDEX_KEY = new Object();
+
+    /**
+     * The held piece and the upcoming pieces last published by the game loop's thread, guarded by the array itself.
+     */
+    private final byte[] pendingPieceIds = new byte[PieceOrder.MAX_PREVIEW_LENGTH];
+    private int pendingHeldPieceId = -1;
+    private int pendingPreviewLength;
+    private boolean piecesPending;
+
+    /**
+     * The upcoming pieces shown by the labels, only used on the event dispatch thread.
+     */
+    private final byte[] shownPieceIds = new byte[PieceOrder.MAX_PREVIEW_LENGTH];
+    private final Runnable showPendingPieces = this::showPendingPieces;
 
     /**
      * Creates a new static window for the game.
@@ -56,6 +104,8 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
     /**
      * Constructs a new <code>GameJFrame</code> instance.
      * Makes the window visible and sets up its components, no additional setting up is necessary.
+     * Opens the leaderboard in the background, the game can be played without saving the results if it can't be opened.
+     * The data being saved is written before the program exits.
      */
     public GameJFrame() {
         this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -69,6 +119,9 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
 
         this.addKeyListener(this);
 
+        Runtime.getRuntime().addShutdownHook(new Thread(persistence::shutdown, "Persistence shutdown"));
+        persistence.submit(() -> leaderboard = Leaderboard.open(Path.of(Leaderboard.DEFAULT_DIRECTORY)));
+
         this.setVisible(true);
         while (!DisplayInfo.setResolution(this));
 
@@ -88,7 +141,7 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
         screenMenu.setLayout(null);
         screenMenu.setOpaque(true);
 
-        int buttonCount = 2;
+        int buttonCount = 3;
         int buttonPortionX = 10;
         int buttonPortionY = 20;
 
@@ -109,6 +162,15 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
         buttonStart.addActionListener(this);
         panelMenuButtons.add(buttonStart);
 
+        buttonBot = new JButton("Watch the Bot");
+        buttonBot.setFont(buttonFont);
+        buttonBot.setBackground(Color.BLACK);
+        buttonBot.setForeground(Color.WHITE);
+        buttonBot.setFocusable(false);
+        buttonBot.setBorder(BorderFactory.createEmptyBorder());
+        buttonBot.addActionListener(this);
+        panelMenuButtons.add(buttonBot);
+
         buttonQuit = new JButton("Quit");
         buttonQuit.setFont(buttonFont);
         buttonQuit.setBackground(Color.BLACK);
@@ -120,17 +182,7 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
 
         screenMenu.add(panelMenuButtons);
 
-        BufferedImage bufferedImageLogo;
-        try {
-            bufferedImageLogo = ImageIO.read(new File("assets/textures/logo.png"));
-            if (bufferedImageLogo == null) throw new IOException("Image not initialized");
-            ImageIcon iconLogo = new ImageIcon(bufferedImageLogo.getScaledInstance(bufferedImageLogo.getWidth() * DisplayInfo.getW() / 5760, bufferedImageLogo.getHeight() * DisplayInfo.getH() / 3240, Image.SCALE_SMOOTH));
-            JLabel labelLogo = new JLabel(iconLogo);
-            labelLogo.setBounds(DisplayInfo.getW() / 2 - iconLogo.getIconWidth() / 2, panelMenuButtons.getY() - DisplayInfo.getH() / 10 - iconLogo.getIconHeight(), iconLogo.getIconWidth(), iconLogo.getIconHeight());
-            screenMenu.add(labelLogo);
-        } catch (IOException e) {
-
-        }
+        TextureCache.load().thenAccept(atlas -> SwingUtilities.invokeLater(() -> addLogo(atlas.getTexture("logo"), panelMenuButtons.getY())));
 
         gameFont = new Font("Segoe UI", 3, DisplayInfo.getH() / 18);
         initGamePanelComponents();
@@ -138,6 +190,22 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
         this.add(screenMenu);
     }
 
+    /**
+     * Adds the logo above the menu buttons.
+     * Called once the textures are loaded.
+     *
+     * @param logo        the logo scaled to the resolution, <code>null</code> if it couldn't be loaded
+     * @param buttonsTopY the y coordinate of the top of the menu buttons
+     */
+    private void addLogo(BufferedImage logo, int buttonsTopY) {
+        if (logo == null) return;
+        ImageIcon iconLogo = new ImageIcon(logo);
+        JLabel labelLogo = new JLabel(iconLogo);
+        labelLogo.setBounds(DisplayInfo.getW() / 2 - iconLogo.getIconWidth() / 2, buttonsTopY - DisplayInfo.getH() / 10 - iconLogo.getIconHeight(), iconLogo.getIconWidth(), iconLogo.getIconHeight());
+        screenMenu.add(labelLogo);
+        screenMenu.repaint();
+    }
+
     /**
      * Initializes the components used for the gameplay screen.
      * Called by <code>initComponents()</code>.
@@ -150,37 +218,9 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
 
         panelGameplay = new GameplayJPanel();
 
-        panelGameLeft = new JPanel();
-        panelGameLeft.setPreferredSize(new Dimension((DisplayInfo.getW() - DisplayInfo.getH() / 2) / 2, DisplayInfo.getH()));
-        panelGameLeft.setBackground(Color.BLACK.brighter());
-        panelGameLeft.setLayout(new GridLayout(4, 1));
+        panelGameLeft = new GameLeftJPanel(gameFont);
         panelGameLeft.setSize((DisplayInfo.getW() - DisplayInfo.getH() / 2) / 2, DisplayInfo.getH());
 
-        labelGameLevel = new JLabel();
-        labelGameLevel.setFont(gameFont);
-        labelGameLevel.setForeground(Color.WHITE);
-        labelGameLevel.setHorizontalAlignment(JLabel.CENTER);
-
-        labelGameScore = new JLabel();
-        labelGameScore.setFont(gameFont);
-        labelGameScore.setForeground(Color.WHITE);
-        labelGameScore.setHorizontalAlignment(JLabel.CENTER);
-
-        labelGameHighscore = new JLabel();
-        labelGameHighscore.setFont(gameFont);
-        labelGameHighscore.setForeground(Color.WHITE);
-        labelGameHighscore.setHorizontalAlignment(JLabel.CENTER);
-
-        labelGameTime = new JLabel();
-        labelGameTime.setFont(gameFont);
-        labelGameTime.setForeground(Color.WHITE);
-        labelGameTime.setHorizontalAlignment(JLabel.CENTER);
-
-        panelGameLeft.add(labelGameHighscore);
-        panelGameLeft.add(labelGameScore);
-        panelGameLeft.add(labelGameLevel);
-        panelGameLeft.add(labelGameTime);
-
         panelGameRight = new GameRightJPanel();
         panelGameRight.setPreferredSize(new Dimension((DisplayInfo.getW() - DisplayInfo.getH() / 2) / 2, DisplayInfo.getH()));
         panelGameRight.setBackground(Color.BLACK.brighter());
@@ -193,18 +233,35 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
 
     /**
      * Begins the game, shows the game screen.
-     * Creates a new static <code>GameState</code> instance.
-     * Called when <code>buttonStart</code> is pressed.
+     * Creates a new <code>GameState</code> instance and starts the game loop which advances and renders it.
+     * The game is recorded into a replay in <code>REPLAY_DIRECTORY</code> by the background writer, a replay that can't be
+     * written is dropped.
+     * The game screen is validated right away, so the gameplay canvas is laid out before its frame buffer is created.
+     * Called when <code>buttonStart</code> or <code>buttonBot</code> is pressed.
+     *
+     * @param botPlaying whether a <code>BeamSearchBot</code> plays the game in place of the user
      */
-    private void startGame() {
+    private void startGame(boolean botPlaying) {
         gameActive = true;
-        GameState.newGame();
+        this.botPlaying = botPlaying;
+        seed = ThreadLocalRandom.current().nextLong();
+        game = new GameState(this, seed);
+        Leaderboard leaderboard = this.leaderboard;
+        if (leaderboard != null) highscore = Math.max(highscore, leaderboard.getHighscore(Leaderboard.MARATHON));
         this.remove(screenMenu);
         this.add(screenGame);
-        revalidate();
+        validate();
         repaint();
-        Renderer.setGraphics2D();
-        GameState.getGame().start();
+        Renderer.setGame(game);
+        Renderer.createFrameBuffer();
+        updateHighscore(highscore);
+
+        gameLoop = new GameLoop(game, this::renderFrame);
+        String fileName = LocalDateTime.now().format(REPLAY_FILE_NAME_FORMAT) + "-" + Long.toHexString(seed) + ".replay";
+        gameLoop.setRecorder(new ReplayWriter(Path.of(REPLAY_DIRECTORY, fileName), seed,
+                game.getPieceOrder().getRandomizerKind(), game.getAutoRepeatDelay(), game.getAutoRepeatRate(), persistence));
+        if (botPlaying) gameLoop.setBot(new BeamSearchBot());
+        gameLoop.start();
         this.requestFocus();
     }
 
@@ -212,6 +269,7 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
      * Shows the menu screen, ends the game.
      */
     public void backToMenu() {
+        Renderer.disposeFrameBuffer();
         this.remove(screenGame);
         this.add(screenMenu);
         revalidate();
@@ -219,20 +277,31 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
         gameActive = false;
     }
 
+    /**
+     * Renders a frame of the game and repaints the values shown during the game that changed since the previous frame.
+     * Called by the game loop once per frame.
+     */
+    private void renderFrame() {
+        Renderer.renderFrame();
+        panelGameLeft.flush();
+    }
+
     /**
      * Updates the level shown during the game.
+     * Can be called from any thread, the level is repainted with the next frame.
      * @param level the level to be displayed
      */
     public void updateLevel(int level) {
-        this.labelGameLevel.setText("<html>Level<br/>" + level + "<html>");
+        panelGameLeft.setValue(GameLeftJPanel.LEVEL, level);
     }
 
     /**
      * Updates the score shown during the game.
+     * Can be called from any thread, the score is repainted with the next frame.
      * @param score the score to be displayed
      */
     public void updateScore(int score) {
-        this.labelGameScore.setText("<html>Score<br/>" + score + "<html>");
+        panelGameLeft.setValue(GameLeftJPanel.SCORE, score);
     }
 
     /**
@@ -241,16 +310,35 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
      * @param highscore the highscore to be shown
      */
     public void updateHighscore(int highscore) {
-        this.labelGameHighscore.setText("<html>Highscore<br/>" + highscore + "<html>");
+        panelGameLeft.setValue(GameLeftJPanel.HIGHSCORE, highscore);
     }
 
     /**
      * Updates the time shown during the game.
-     * Should be called every second using a timer.
+     * Can be called from any thread, the time is repainted with the next frame.
      * @param time the time to be shown
      */
     public void updateTime(int time) {
-        this.labelGameTime.setText("<html>Time<br/>" + time + "<html>");
+        panelGameLeft.setValue(GameLeftJPanel.TIME, time);
+    }
+
+    /**
+     * Returns the currently played game.
+     *
+     * @return the current <code>GameState</code> instance
+     */
+    public GameState getGame() {
+        return game;
+    }
+
+    /**
+     * Returns the loop running the currently played game.
+     * Input has to go through the loop, since the game is advanced on the loop's thread.
+     *
+     * @return the current <code>GameLoop</code> instance
+     */
+    public GameLoop getGameLoop() {
+        return gameLoop;
     }
 
     public GameplayJPanel getGamePanel() {
@@ -264,15 +352,167 @@ public class GameJFrame extends JFrame implements ActionListener, KeyListener {
     /**
      * Updates the upcoming pieces shown.
      * Should be called whenever the upcoming pieces list is changed.
+     *
+     * @param heldPieceId      the id of the currently held piece, -1 if no piece is held
+     * @param upcomingPieceIds the ids of the upcoming pieces
+     * @param previewLength    the amount of upcoming pieces in the array
      */
-    public void updateUpcomingPieceLabels() {
-        panelGameRight.updatePanel();
+    public void updateUpcomingPieceLabels(int heldPieceId, byte[] upcomingPieceIds, int previewLength) {
+        panelGameRight.updatePanel(heldPieceId, upcomingPieceIds, previewLength);
+    }
+
+    /*
+     * The game events are reported on the game loop's thread. The values shown during the game are painted with the next
+     * frame, the upcoming pieces are updated on the event dispatch thread.
+     */
+
+    @Override
+    public void scoreChanged(int score) {
+        updateScore(score);
+    }
+
+    @Override
+    public void levelChanged(int level) {
+        updateLevel(level);
+    }
+
+    @Override
+    public void timeChanged(int time) {
+        updateTime(time);
+    }
+
+    /**
+     * Publishes the upcoming pieces and schedules an update of the upcoming piece labels, unless neither they nor the held
+     * piece changed. The pieces are copied into a preallocated buffer. If an update is already scheduled, it shows the new
+     * pieces instead, so the event dispatch thread only processes the latest pieces.
+     */
+    @Override
+    public void piecesChanged() {
+        PieceOrder pieceOrder = game.getPieceOrder();
+        PieceType heldPiece = pieceOrder.getHeldPiece();
+        int heldPieceId = heldPiece == null ? -1 : heldPiece.ordinal();
+        PiecePreview preview = pieceOrder.getPreview();
+        int previewLength = preview.size();
+        synchronized (pendingPieceIds) {
+            boolean changed = heldPieceId != pendingHeldPieceId || previewLength != pendingPreviewLength;
+            for (int i = 0; i < previewLength; i++) {
+                byte id = (byte) preview.getPieceId(i);
+                if (pendingPieceIds[i] == id) continue;
+                pendingPieceIds[i] = id;
+                changed = true;
+            }
+            if (!changed) return;
+            pendingHeldPieceId = heldPieceId;
+            pendingPreviewLength = previewLength;
+            if (piecesPending) return;
+            piecesPending = true;
+        }
+        SwingUtilities.invokeLater(showPendingPieces);
+    }
+
+    /**
+     * Copies the published pieces into the buffer of the shown pieces and updates the upcoming piece labels.
+     * Called on the event dispatch thread.
+     */
+    private void showPendingPieces() {
+        int heldPieceId;
+        int previewLength;
+        synchronized (pendingPieceIds) {
+            heldPieceId = pendingHeldPieceId;
+            previewLength = pendingPreviewLength;
+            System.arraycopy(pendingPieceIds, 0, shownPieceIds, 0, previewLength);
+            piecesPending = false;
+        }
+        updateUpcomingPieceLabels(heldPieceId, shownPieceIds, previewLength);
+    }
+
+    /**
+     * Stops the game loop and returns the user to the menu screen after showing them their results.
+     *
+     * @param score the final score
+     */
+    @Override
+    public void gameOver(int score) {
+        gameLoop.stop();
+        ScoreRecord result = new ScoreRecord(score, game.getRowsCleared(), game.getLevel(), game.getTime(), Leaderboard.MARATHON,
+                seed, System.currentTimeMillis());
+        SwingUtilities.invokeLater(() -> showResults(result));
+    }
+
+    /**
+     * Shows the user their results and returns them to the menu screen.
+     * The results are saved to the leaderboard in the background, the dialog shows whether they were saved once it's done.
+     * The results of a bot are only shown.
+     *
+     * @param result the result of the game
+     */
+    private void showResults(ScoreRecord result) {
+        int score = result.score();
+        if (botPlaying) {
+            JOptionPane.showMessageDialog(null, "Bot score: " + score, "Game Over", JOptionPane.PLAIN_MESSAGE);
+            backToMenu();
+            return;
+        }
+        String message = "Score: " + score + "\nHighscore: " + highscore;
+        if (score > highscore) {
+            message = message + "\nNew highscore!";
+            highscore = score;
+        }
+        JLabel labelSaved = new JLabel("Saving...");
+        saveResult(result).whenComplete((ignored, error) -> SwingUtilities.invokeLater(() ->
+                labelSaved.setText(error == null ? "Saved" : "Error: Unable to save the result")));
+        JOptionPane.showMessageDialog(null, new Object[]{message, labelSaved}, "Game Over", JOptionPane.PLAIN_MESSAGE);
+        backToMenu();
+    }
+
+    /**
+     * Adds the result of a game to the leaderboard on the background writer.
+     * The result is appended to the log, the index is rewritten by a keyed task, so results saved in quick succession
+     * update the index once, and all of them are synced together.
+     *
+     * @param result the result of the game
+     * @return the future completed once the result is saved, or completed exceptionally if it couldn't be saved
+     */
+    private CompletableFuture<Void> saveResult(ScoreRecord result) {
+        CompletableFuture<Void> appended = persistence.submit(new LeaderboardTask() {
+            @Override
+            public void write() throws IOException {
+                if (leaderboard == null) throw new IOException("Leaderboard couldn't be opened");
+                leaderboard.append(result);
+            }
+        });
+        CompletableFuture<Void> indexed = persistence.submit(LEADERBOARD_INDEX_KEY, new LeaderboardTask() {
+            @Override
+            public void write() throws IOException {
+                if (leaderboard == null) throw new IOException("Leaderboard couldn't be opened");
+                leaderboard.writeIndex();
+            }
+        });
+        return CompletableFuture.allOf(appended, indexed);
+    }
+
+    /**
+     * A write to the leaderboard, synced once per batch together with the other writes to the leaderboard.
+     */
+    private abstract class LeaderboardTask implements BackgroundWriter.Task {
+
+        @Override
+        public void sync() throws IOException {
+            leaderboard.sync();
+        }
+
+        @Override
+        public Object syncTarget() {
+            return leaderboard;
+        }
     }
 
     @Override
     public void actionPerformed(ActionEvent e) {
         if (e.getSource() == buttonStart) {
-            startGame();
+            startGame(false);
+        } else if (e.getSource() == buttonBot) {
+            startGame(true);
         } else if (e.getSource() == buttonQuit) {
             System.exit(0);
         }
@@ -0,0 +1,132 @@
+package renderer;
+
+import util.DisplayInfo;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
+import java.awt.geom.Rectangle2D;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The panel used for displaying the highscore, the score, the level and the time.
+ * The values are stored as numbers and can be set from any thread. Setting a value only marks it as changed, the changed
+ * values are repainted together by <code>flush()</code>, which is called once per frame.
+ * The text is drawn from glyph vectors that are only laid out again when their value changes.
+ */
+public class GameLeftJPanel extends JPanel {
+
+    public static final int HIGHSCORE = 0;
+    public static final int SCORE = 1;
+    public static final int LEVEL = 2;
+    public static final int TIME = 3;
+
+    private static final String[] TITLES = {"Highscore", "Score", "Level", "Time"};
+
+    private final Font font;
+
+    private final int[] values = new int[TITLES.length];
+    private final AtomicInteger changedValues = new AtomicInteger();
+
+    /*
+     * The glyph vectors are only accessed on the event dispatch thread while painting.
+     */
+    private FontRenderContext fontRenderContext;
+    private final GlyphVector[] titleGlyphs = new GlyphVector[TITLES.length];
+    private final GlyphVector[] valueGlyphs = new GlyphVector[TITLES.length];
+    private final int[] glyphValues = new int[TITLES.length];
+
+    /**
+     * Constructs a new <code>GameLeftJPanel</code> and sets up its look.
+     *
+     * @param font the font the values are displayed with
+     */
+    public GameLeftJPanel(Font font) {
+        this.font = font;
+        this.setBackground(Color.BLACK.brighter());
+        this.setForeground(Color.WHITE);
+        this.setOpaque(true);
+        this.setPreferredSize(new Dimension((DisplayInfo.getW() - DisplayInfo.getH() / 2) / 2, DisplayInfo.getH()));
+    }
+
+    /**
+     * Sets the given value, the panel is repainted by the next <code>flush()</code> if the value changed.
+     *
+     * @param index the value's index, e.g. <code>SCORE</code>
+     * @param value the new value
+     */
+    public void setValue(int index, int value) {
+        synchronized (values) {
+            if (values[index] == value) return;
+            values[index] = value;
+        }
+        changedValues.getAndAccumulate(1 << index, (changed, bit) -> changed | bit);
+    }
+
+    /**
+     * Repaints the values that changed since the previous call.
+     * Can be called from any thread.
+     */
+    public void flush() {
+        int changed = changedValues.getAndSet(0);
+        if (changed == 0) return;
+        int cellHeight = getHeight() / TITLES.length;
+        for (int i = 0; i < TITLES.length; i++) {
+            if ((changed & (1 << i)) != 0) repaint(0, cellHeight * i, getWidth(), cellHeight);
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2D = (Graphics2D) g;
+        g2D.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+        FontRenderContext context = g2D.getFontRenderContext();
+        if (!context.equals(fontRenderContext)) {
+            fontRenderContext = context;
+            for (int i = 0; i < TITLES.length; i++) {
+                titleGlyphs[i] = font.createGlyphVector(context, TITLES[i]);
+                valueGlyphs[i] = null;
+            }
+        }
+
+        LineMetrics lineMetrics = font.getLineMetrics(TITLES[0], context);
+        float lineHeight = lineMetrics.getAscent() + lineMetrics.getDescent();
+        int cellHeight = getHeight() / TITLES.length;
+        Rectangle clip = g2D.getClipBounds();
+
+        g2D.setColor(getForeground());
+        for (int i = 0; i < TITLES.length; i++) {
+            int top = cellHeight * i;
+            if (clip != null && (clip.y >= top + cellHeight || clip.y + clip.height <= top)) continue;
+
+            int value;
+            synchronized (values) {
+                value = values[i];
+            }
+            if (valueGlyphs[i] == null || glyphValues[i] != value) {
+                valueGlyphs[i] = font.createGlyphVector(context, String.valueOf(value));
+                glyphValues[i] = value;
+            }
+
+            float baseline = top + (cellHeight - lineHeight * 2) / 2 + lineMetrics.getAscent();
+            drawCentered(g2D, titleGlyphs[i], baseline);
+            drawCentered(g2D, valueGlyphs[i], baseline + lineHeight);
+        }
+    }
+
+    /**
+     * Draws the given glyph vector horizontally centered in the panel.
+     *
+     * @param g2D      the graphics to draw with
+     * @param glyphs   the glyph vector to be drawn
+     * @param baseline the y coordinate of the baseline
+     */
+    private void drawCentered(Graphics2D g2D, GlyphVector glyphs, float baseline) {
+        Rectangle2D bounds = glyphs.getLogicalBounds();
+        g2D.drawGlyphVector(glyphs, (float) ((getWidth() - bounds.getWidth()) / 2), baseline);
+    }
+}
@@ -1,22 +1,19 @@
 package renderer;
 
 import game.GameState;
-import game.pieces.Piece;
-import game.pieces.types.*;
+import game.pieces.PieceOrder;
 import util.DisplayInfo;
+import util.TextureCache;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
 
 /**
  * The panel used for displaying the upcoming pieces, as well as the currently held piece.
  */
 public class GameRightJPanel extends JPanel {
-    private static ImageIcon pieceImages[];
+    private static ImageIcon pieceImages[] = new ImageIcon[GameState.PIECE_COUNT];
 
     private JLabel heldPieceLabel;
     private JPanel upcomingPiecesPanel;
@@ -24,6 +21,10 @@ public class GameRightJPanel extends JPanel {
 
     private Font font;
 
+    private int heldPieceId = -1;
+    private byte[] upcomingPieceIds;
+    private int previewLength;
+
     /**
      * Constructs a new <code>GameRightJPanel</code> and sets up all of its components, as well as their and its look.
      */
@@ -44,9 +45,8 @@ public class GameRightJPanel extends JPanel {
         upcomingPiecesPanel = new JPanel();
         upcomingPiecesPanel.setBackground(Color.BLACK.brighter());
         upcomingPiecesPanel.setBounds(0, heldPieceLabel.getHeight(), (DisplayInfo.getW() - DisplayInfo.getH() / 2) / 2, DisplayInfo.getH() - heldPieceLabel.getHeight());
-        upcomingPiecesPanel.setLayout(new GridLayout(7, 1));
 
-        initializeUpcomingPieceLabels();
+        initializeUpcomingPieceLabels(PieceOrder.DEFAULT_PREVIEW_LENGTH);
         initializeImageIcons();
 
         this.add(heldPieceLabel);
@@ -55,23 +55,45 @@ public class GameRightJPanel extends JPanel {
 
     /**
      * Updates the panel, displays the new upcoming pieces and the new currently held piece.
+     * If the preview length changed, the upcoming piece labels are rebuilt first, so there is a label for every piece.
+     *
+     * @param heldPieceId      the id of the currently held piece, -1 if no piece is held
+     * @param upcomingPieceIds the ids of the upcoming pieces, only read on the event dispatch thread
+     * @param previewLength    the amount of upcoming pieces in the array
      */
-    public void updatePanel() {
-        heldPieceLabel.setIcon(getCorrespondingImageIcon(GameState.getGame().getPieceOrder().getHeldPiece()));
-
-        int index = 1;
-        for (Piece piece : GameState.getGame().getPieceOrder().getPieceOrder()) {
-            upcomingPieceLabels[index].setIcon(getCorrespondingImageIcon(piece));
-            index++;
+    public void updatePanel(int heldPieceId, byte[] upcomingPieceIds, int previewLength) {
+        this.heldPieceId = heldPieceId;
+        this.upcomingPieceIds = upcomingPieceIds;
+        this.previewLength = previewLength;
+        if (previewLength != upcomingPieceLabels.length - 1) initializeUpcomingPieceLabels(previewLength);
+        setIcon(heldPieceLabel, getImageIcon(heldPieceId));
+
+        for (int i = 0; i < previewLength; i++) {
+            setIcon(upcomingPieceLabels[i + 1], getImageIcon(upcomingPieceIds[i]));
         }
     }
 
     /**
-     * Initializes the upcoming piece labels used for displaying the upcoming pieces.
-     * Called by the constructor.
+     * Shows the given icon on the given label, unless it already shows it.
+     * Labels whose piece type didn't change, e.g. the held piece's label after a new piece spawned, aren't revalidated or repainted.
+     *
+     * @param label the label
+     * @param icon  the icon to be shown
      */
-    private void initializeUpcomingPieceLabels() {
-        upcomingPieceLabels = new JLabel[7];
+    private static void setIcon(JLabel label, ImageIcon icon) {
+        if (label.getIcon() != icon) label.setIcon(icon);
+    }
+
+    /**
+     * Initializes the upcoming piece labels used for displaying the upcoming pieces, a title label followed by a label for
+     * every piece in the preview. Called by the constructor and whenever the preview length changes.
+     *
+     * @param previewLength the amount of upcoming pieces shown
+     */
+    private void initializeUpcomingPieceLabels(int previewLength) {
+        upcomingPiecesPanel.removeAll();
+        upcomingPiecesPanel.setLayout(new GridLayout(previewLength + 1, 1));
+        upcomingPieceLabels = new JLabel[previewLength + 1];
         for (int i = 0; i < upcomingPieceLabels.length; i++) {
             upcomingPieceLabels[i] = new JLabel();
             upcomingPieceLabels[i].setHorizontalAlignment(JLabel.CENTER);
@@ -83,41 +105,32 @@ public class GameRightJPanel extends JPanel {
         upcomingPieceLabels[0].setVerticalTextPosition(JLabel.TOP);
         upcomingPieceLabels[0].setForeground(Color.WHITE);
         upcomingPieceLabels[0].setFont(font);
+        upcomingPiecesPanel.revalidate();
+        upcomingPiecesPanel.repaint();
     }
 
     /**
-     * Initializes the image icons used for displaying the upcoming pieces.
+     * Starts loading the image icons used for displaying the upcoming pieces.
+     * The pieces shown in the meantime are updated once the icons are loaded.
      */
     private void initializeImageIcons() {
-        pieceImages = new ImageIcon[GameState.PIECE_COUNT];
-        BufferedImage bufferedImage;
-        for (int i = 0; i < GameState.PIECE_COUNT; i++) {
-            try {
-                bufferedImage = ImageIO.read(new File("assets/textures/pieces/" + i + ".png"));
-                if (bufferedImage == null) throw new IOException("Image not initialized");
-                pieceImages[i] = new ImageIcon(bufferedImage.getScaledInstance(bufferedImage.getWidth() * DisplayInfo.getW() / 5760, bufferedImage.getHeight() * DisplayInfo.getH() / 3240, Image.SCALE_SMOOTH));
-            } catch (IOException e) {
-
+        TextureCache.load().thenAccept(atlas -> SwingUtilities.invokeLater(() -> {
+            for (int i = 0; i < GameState.PIECE_COUNT; i++) {
+                BufferedImage texture = atlas.getTexture("pieces/" + i);
+                pieceImages[i] = texture == null ? null : new ImageIcon(texture);
             }
-        }
+            if (upcomingPieceIds != null) updatePanel(heldPieceId, upcomingPieceIds, previewLength);
+        }));
     }
 
     /**
-     * Gets the piece's class' corresponding image icon.
+     * Gets the image icon of the piece with the given id.
      *
-     * @param piece the piece to be shown
-     * @return the corresponding image icon
+     * @param id the id of the piece to be shown, -1 for no piece
+     * @return the corresponding image icon, <code>null</code> for no piece
      */
-    private static ImageIcon getCorrespondingImageIcon(Piece piece) {
-        if (piece == null) return null;
-        Class<? extends Piece> pieceClass = piece.getClass();
-        if (pieceClass.isAssignableFrom(PieceI.class)) return pieceImages[0];
-        if (pieceClass.isAssignableFrom(PieceJ.class)) return pieceImages[1];
-        if (pieceClass.isAssignableFrom(PieceL.class)) return pieceImages[2];
-        if (pieceClass.isAssignableFrom(PieceO.class)) return pieceImages[3];
-        if (pieceClass.isAssignableFrom(PieceS.class)) return pieceImages[4];
-        if (pieceClass.isAssignableFrom(PieceT.class)) return pieceImages[5];
-        if (pieceClass.isAssignableFrom(PieceZ.class)) return pieceImages[6];
-        throw new IllegalArgumentException("Invalid piece type!");
+    private static ImageIcon getImageIcon(int id) {
+        if (id < 0) return null;
+        return pieceImages[id];
     }
 }
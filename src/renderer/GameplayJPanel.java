@@ -1,5 +1,6 @@
 package renderer;
 
+import game.GameLoop;
 import game.GameState;
 import util.DisplayInfo;
 import util.InputHandler;
@@ -13,15 +14,32 @@ import java.awt.event.*;
  */
 public class GameplayJPanel extends JPanel implements MouseMotionListener, MouseListener {
 
+    private final Canvas canvas;
+
     /**
      * Constructs a new <code>GameplayJPanel</code> and assigns its values.
+     * The gameplay is drawn on a <code>Canvas</code> filling the panel, since active rendering needs a heavyweight component.
      */
     GameplayJPanel() {
-        this.addMouseMotionListener(this);
-        this.addMouseListener(this);
-
+        this.setLayout(new BorderLayout());
         this.setPreferredSize(new Dimension(DisplayInfo.getH() / 2, DisplayInfo.getH()));
         this.setBackground(Color.BLACK);
+
+        canvas = new Canvas();
+        canvas.setBackground(Color.BLACK);
+        canvas.setFocusable(false);
+        canvas.addMouseMotionListener(this);
+        canvas.addMouseListener(this);
+        this.add(canvas, BorderLayout.CENTER);
+    }
+
+    /**
+     * Returns the canvas the gameplay is drawn on.
+     *
+     * @return the gameplay canvas
+     */
+    public Canvas getCanvas() {
+        return canvas;
     }
 
     @Override
@@ -31,16 +49,17 @@ public class GameplayJPanel extends JPanel implements MouseMotionListener, Mouse
 
     /**
      * Invoked when the mouse is moved.
-     * If the tile that the cursor is hovering over changes, the panel gets refreshed, displaying the new piece position.
+     * Sets the column that the cursor is hovering over as the falling piece's target column. The game loop moves the piece
+     * there once per frame, no matter how many mouse events arrive in between.
      *
      * @param e the event to be processed
      */
     @Override
     public void mouseMoved(MouseEvent e) {
-        int moveAmount = (int) (e.getX() / ((DisplayInfo.getH() / 2) / GameState.TILE_COUNT_X) - GameState.getGame().getFallingPiece().getTiles()[GameState.getGame().getFallingPiece().getCenterTile()].getX());
-        if (moveAmount == 0) return;
-        GameState.getGame().getFallingPiece().move(moveAmount);
-        Renderer.render();
+        GameLoop gameLoop = GameJFrame.getWindow().getGameLoop();
+        if (gameLoop == null) return;
+        int column = e.getX() / ((DisplayInfo.getH() / 2) / GameState.TILE_COUNT_X);
+        gameLoop.moveToColumn(Math.min(Math.max(column, 0), GameState.TILE_COUNT_X - 1));
     }
 
     @Override
@@ -1,130 +1,322 @@
 package renderer;
 
+import game.Board;
 import game.GameState;
-import game.Tile;
 import game.pieces.Piece;
+import game.pieces.PieceShape;
+import game.pieces.PieceType;
 import util.DisplayInfo;
 
 import java.awt.*;
-import java.util.TreeSet;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 /**
  * Used for drawing the game on the static <code>GameJFrame</code>'s <code>GameplayJPanel</code>.
  */
 public abstract class Renderer {
 
+    /**
+     * The piece colors, indexed by the piece's id.
+     */
+    private static final Color[] PIECE_COLORS = new Color[PieceType.values().length];
+
+    static {
+        for (PieceType type : PieceType.values()) {
+            PIECE_COLORS[type.ordinal()] = new Color(type.getColor());
+        }
+    }
+
+    private static final Color GRID_COLOR = Color.DARK_GRAY.darker().darker();
+
+    private static final int CELL_COUNT = GameState.TILE_COUNT_X * GameState.TILE_COUNT_Y;
+
+    /*
+     * The state of a cell is the tile drawn in it in the lower bits (0 for none, the piece's id + 1 or MARKED for a row being
+     * cleared) and the id + 1 of the ghost piece outlined in it in the upper bits.
+     */
+    private static final int EMPTY = 0;
+    private static final int MARKED = GameState.PIECE_COUNT + 1;
+    private static final int GHOST_SHIFT = 8;
+    private static final int TILE_MASK = (1 << GHOST_SHIFT) - 1;
+    private static final int GHOST_MASK = ~TILE_MASK;
+
     private static Graphics2D g2D;
+    private static GameState game;
+    private static FrameBuffer frameBuffer;
+
+    private static BufferedImage grid;
+    private static BufferedImage background;
+    private static TileSprites sprites;
+    private static final int[] cellX = new int[GameState.TILE_COUNT_X + 1];
+    private static final int[] cellY = new int[GameState.TILE_COUNT_Y + 1];
+    private static BufferedImage playfield;
+    private static final int[] cellStates = new int[CELL_COUNT];
+    private static final int[] drawnCellStates = new int[CELL_COUNT];
+    private static final boolean[] dirty = new boolean[CELL_COUNT];
+    private static final int[] dirtyCells = new int[CELL_COUNT];
+    private static int dirtyCellCount;
+
+    /**
+     * Creates a new <code>FrameBuffer</code> for the static <code>GameJFrame</code>'s <code>GameplayJPanel</code>'s canvas,
+     * which the frames are presented with from now on. The previous frame buffer is released.
+     * The game panel must be displayable.
+     */
+    public static synchronized void createFrameBuffer() {
+        disposeFrameBuffer();
+        frameBuffer = new FrameBuffer(GameJFrame.getWindow().getGamePanel().getCanvas());
+    }
 
     /**
-     * Assigns the static <code>GameJFrame</code>'s <code>GameplayJPanel</code>'s <code>Graphics2D</code> as the <code>Graphics2D</code> instance to be used.
+     * Releases the current <code>FrameBuffer</code>, frames are no longer presented until a new one is created.
      */
-    public static void setGraphics2D() {
-        Renderer.g2D = (Graphics2D) GameJFrame.getWindow().getGamePanel().getGraphics();
+    public static synchronized void disposeFrameBuffer() {
+        if (frameBuffer != null) frameBuffer.dispose();
+        frameBuffer = null;
+    }
+
+    /**
+     * Assigns the given <code>Graphics2D</code> instance to be used, e.g. the graphics of an off-screen image.
+     *
+     * @param g2D the <code>Graphics2D</code> instance to draw with
+     */
+    public static void setGraphics2D(Graphics2D g2D) {
+        Renderer.g2D = g2D;
         if (g2D == null) {
             throw new IllegalStateException("Graphics2D not initialized!");
         }
     }
 
+    /**
+     * Assigns the game to be rendered.
+     *
+     * @param game the game to be rendered
+     */
+    public static void setGame(GameState game) {
+        Renderer.game = game;
+        playfield = null;
+    }
+
+    /**
+     * Renders the game to the back buffer of the current <code>FrameBuffer</code> and presents it.
+     * Does nothing if there is no frame buffer.
+     */
+    public static synchronized void renderFrame() {
+        if (frameBuffer == null) return;
+        frameBuffer.render(graphics -> {
+            g2D = graphics;
+            render();
+        });
+        g2D = null;
+    }
+
     /**
      * Renders the game with the assigned <code>Graphics2D</code> instance.
+     * The playfield is kept in an off-screen image between frames. Only the cells whose contents changed since the previous
+     * frame are redrawn into it, then the image is drawn with the assigned <code>Graphics2D</code> instance.
      */
     public static void render() {
-        // Render the background
-        g2D.setPaint(Color.BLACK);
-        g2D.fillRect(0, 0, DisplayInfo.getH() / 2, DisplayInfo.getH());
-
-        // Render the falling piece
-        renderFallingPiece();
-
-        // Render the placed pieces
-        for (int row = 0; row < GameState.TILE_COUNT_X; row++) {
-            for (int column = 0; column < GameState.TILE_COUNT_Y; column++) {
-                Tile tile = GameState.getGame().getTiles()[row][column];
-                Color tileColor;
-                if (!tile.isMarked()) {
-                    tileColor = tile.getColor();
-                } else {
-                    tileColor = Color.WHITE;
-                }
-                if (!tile.isOccupied()) continue;
-                renderTile(row, column, tileColor);
+        if (background == null || background.getHeight() != DisplayInfo.getH()) createLayers();
+        if (playfield == null) createPlayfield();
+
+        updateCellStates();
+
+        Graphics2D playfieldG2D = playfield.createGraphics();
+        try {
+            for (int cell = 0; cell < CELL_COUNT; cell++) {
+                if (cellStates[cell] == drawnCellStates[cell]) continue;
+                markDirty(cell);
+                if (((cellStates[cell] ^ drawnCellStates[cell]) & GHOST_MASK) == 0) continue;
+                // The outline of a ghost tile is 1 pixel larger than the tile, it reaches into the cells to the right and below
+                int x = cell % GameState.TILE_COUNT_X;
+                int y = cell / GameState.TILE_COUNT_X;
+                if (x + 1 < GameState.TILE_COUNT_X) markDirty(cell + 1);
+                if (y + 1 < GameState.TILE_COUNT_Y) markDirty(cell + GameState.TILE_COUNT_X);
+                if (x + 1 < GameState.TILE_COUNT_X && y + 1 < GameState.TILE_COUNT_Y) markDirty(cell + GameState.TILE_COUNT_X + 1);
             }
+            for (int i = 0; i < dirtyCellCount; i++) {
+                int cell = dirtyCells[i];
+                renderCell(playfieldG2D, cell);
+                drawnCellStates[cell] = cellStates[cell];
+                dirty[cell] = false;
+            }
+            dirtyCellCount = 0;
+        } finally {
+            playfieldG2D.dispose();
         }
 
-        // Draw the grid
+        g2D.drawImage(playfield, 0, 0, null);
+    }
 
-        g2D.setPaint(Color.DARK_GRAY.darker().darker());
-        float tileSize = DisplayInfo.getH() / 20.0f;
-        float lineThickness = tileSize / 20.0f;
+    /**
+     * Creates the layers that only depend on the resolution: the grid lines, the static background they are baked into,
+     * i.e. the empty playfield, the tile sprites and the pixel bounds of the cells.
+     */
+    private static void createLayers() {
+        GraphicsConfiguration configuration = g2D.getDeviceConfiguration();
+        int width = DisplayInfo.getH() / 2;
+        int height = DisplayInfo.getH();
+        float size = getTileSize();
+
+        for (int i = 0; i < cellX.length; i++) {
+            cellX[i] = Math.round(size * i);
+        }
+        for (int i = 0; i < cellY.length; i++) {
+            cellY[i] = Math.round(size * i);
+        }
 
-        // Draw the columns
-        for (int i = 0; i < GameState.TILE_COUNT_X + 1; i++) {
-            g2D.fillRect(Math.round(tileSize * i - lineThickness / 2.0f), 0, Math.round(lineThickness), DisplayInfo.getH());
+        grid = configuration.createCompatibleImage(width, height, Transparency.BITMASK);
+        Graphics2D gridG2D = grid.createGraphics();
+        try {
+            gridG2D.setPaint(GRID_COLOR);
+            float lineThickness = size / 20.0f;
+            for (int i = 0; i < GameState.TILE_COUNT_X + 1; i++) {
+                gridG2D.fillRect(Math.round(size * i - lineThickness / 2.0f), 0, Math.round(lineThickness), height);
+            }
+            for (int i = 0; i < GameState.TILE_COUNT_Y + 1; i++) {
+                gridG2D.fillRect(0, Math.round(size * i - lineThickness / 2.0f), width, Math.round(lineThickness));
+            }
+        } finally {
+            gridG2D.dispose();
         }
 
-        // Draw the rows
-        for (int i = 0; i < GameState.TILE_COUNT_Y + 1; i++) {
-            g2D.fillRect(0, Math.round(tileSize * i - lineThickness / 2.0f), DisplayInfo.getH() / 2, Math.round(lineThickness));
+        background = configuration.createCompatibleImage(width, height);
+        Graphics2D backgroundG2D = background.createGraphics();
+        try {
+            backgroundG2D.setPaint(Color.BLACK);
+            backgroundG2D.fillRect(0, 0, width, height);
+            backgroundG2D.drawImage(grid, 0, 0, null);
+        } finally {
+            backgroundG2D.dispose();
         }
 
-        // Draw the outline of the piece on the ground
-        drawPiecePredictionOutline();
+        sprites = new TileSprites(configuration, Math.round(size));
+        playfield = null;
     }
 
     /**
-     * Plays the row clear animation on the given rows.
-     * The game stops, the animation plays and then the rows get removed and the game continues.
-     *
-     * @param rows the filled rows
+     * Creates the off-screen playfield image from the static background.
+     * The whole background is drawn into the playfield, so only the occupied cells have to be drawn afterwards.
      */
-    public static void playRowClearAnimation(TreeSet<Integer> rows) {
-        new RowClearAnimation(rows);
+    private static void createPlayfield() {
+        playfield = g2D.getDeviceConfiguration().createCompatibleImage(background.getWidth(), background.getHeight());
+        Graphics2D playfieldG2D = playfield.createGraphics();
+        try {
+            playfieldG2D.drawImage(background, 0, 0, null);
+        } finally {
+            playfieldG2D.dispose();
+        }
+        Arrays.fill(drawnCellStates, EMPTY);
     }
 
     /**
-     * Draws the currently falling piece.
+     * Calculates the contents of every cell in the current frame.
+     * The placed pieces are drawn over the falling piece, the outline of the ghost piece is drawn over both.
      */
-    private static void renderFallingPiece() {
-        Piece fallingPiece = GameState.getGame().getFallingPiece();
+    private static void updateCellStates() {
+        Arrays.fill(cellStates, EMPTY);
+
+        Piece piece = game.getFallingPiece();
+        if (piece != null) {
+            int color = piece.getId() + 1;
+            for (int i = 0; i < PieceShape.TILE_COUNT; i++) {
+                int y = piece.getTileY(i);
+                if (y >= 0 && y < GameState.TILE_COUNT_Y) cellStates[getCell(piece.getTileX(i), y)] = color;
+            }
+        }
 
-        g2D.setPaint(fallingPiece.getColor());
+        Board board = game.getBoard();
+        for (int y = 0; y < GameState.TILE_COUNT_Y; y++) {
+            int rowMask = board.getRow(y);
+            if (rowMask == 0) continue;
+            boolean marked = board.isRowMarked(y);
+            for (int x = 0; x < GameState.TILE_COUNT_X; x++) {
+                if ((rowMask & (1 << x)) == 0) continue;
+                cellStates[getCell(x, y)] = marked ? MARKED : board.getColor(x, y);
+            }
+        }
 
-        for (Point point : fallingPiece.getTiles()) {
-            renderTile(point.x, point.y, fallingPiece.getColor());
+        if (piece != null) {
+            int ghost = (piece.getId() + 1) << GHOST_SHIFT;
+            for (int i = 0; i < PieceShape.TILE_COUNT; i++) {
+                int y = piece.getTileY(i) + piece.getGravityCount();
+                if (y >= 0 && y < GameState.TILE_COUNT_Y) cellStates[getCell(piece.getTileX(i), y)] |= ghost;
+            }
         }
     }
 
     /**
-     * Renders the given tile.
+     * Redraws the given cell of the playfield: restores its background or draws its tile sprite with the grid lines over it,
+     * then draws the outlines of the ghost tiles reaching into the cell. Nothing is drawn outside the cell.
      *
-     * @param row    the tile's row
-     * @param column the tile's column
-     * @param color  the tile's color
+     * @param g2D  the graphics of the playfield image
+     * @param cell the index of the cell
      */
-    private static void renderTile(int row, int column, Color color) {
-        g2D.setPaint(color);
+    private static void renderCell(Graphics2D g2D, int cell) {
+        int x = cell % GameState.TILE_COUNT_X;
+        int y = cell / GameState.TILE_COUNT_X;
+        int left = cellX[x];
+        int top = cellY[y];
+        int right = cellX[x + 1];
+        int bottom = cellY[y + 1];
+        g2D.setClip(left, top, right - left, bottom - top);
 
-        float size = DisplayInfo.getH() / 20.0f;
-        int x = Math.round(size * row);
-        int y = Math.round(size * column);
+        int tile = cellStates[cell] & TILE_MASK;
+        if (tile == EMPTY) {
+            g2D.drawImage(background, left, top, right, bottom, left, top, right, bottom, null);
+        } else {
+            g2D.drawImage(tile == MARKED ? sprites.getMarkedTile() : sprites.getTile(tile - 1), left, top, null);
+            g2D.drawImage(grid, left, top, right, bottom, left, top, right, bottom, null);
+        }
 
-        g2D.fillRect(x, y, Math.round(size), Math.round(size));
+        // Draw the outlines of the ghost tiles in this cell and in the cells to the left and above
+        for (int ghostY = Math.max(y - 1, 0); ghostY <= y; ghostY++) {
+            for (int ghostX = Math.max(x - 1, 0); ghostX <= x; ghostX++) {
+                int ghost = cellStates[getCell(ghostX, ghostY)] >>> GHOST_SHIFT;
+                if (ghost == 0) continue;
+                g2D.drawImage(sprites.getGhost(ghost - 1), cellX[ghostX], cellY[ghostY], null);
+            }
+        }
     }
 
     /**
-     * Draws an outline of where the falling piece would land if it was hard dropped.
+     * Adds the given cell to the cells redrawn in the current frame, unless it was already added.
+     *
+     * @param cell the index of the cell
      */
-    private static void drawPiecePredictionOutline() {
-        Piece piece = GameState.getGame().getFallingPiece();
+    private static void markDirty(int cell) {
+        if (dirty[cell]) return;
+        dirty[cell] = true;
+        dirtyCells[dirtyCellCount++] = cell;
+    }
 
-        float size = DisplayInfo.getH() / 20.0f;
+    /**
+     * Returns the index of the cell at the given coordinates.
+     *
+     * @param x the cell's column
+     * @param y the cell's row
+     * @return the index of the cell
+     */
+    private static int getCell(int x, int y) {
+        return y * GameState.TILE_COUNT_X + x;
+    }
 
-        g2D.setPaint(piece.getColor());
+    /**
+     * Returns the size of a tile in pixels, before rounding.
+     *
+     * @return the tile size
+     */
+    private static float getTileSize() {
+        return DisplayInfo.getH() / 20.0f;
+    }
 
-        for (Point tile : GameState.getGame().getFallingPiece().getTiles()) {
-            int x = Math.round(size * tile.x);
-            int y = Math.round(size * tile.y + size * piece.getGravityCount());
-            g2D.drawRect(x, y, Math.round(size), Math.round(size));
-        }
+    /**
+     * Returns the color of the piece with the given id.
+     *
+     * @param id the piece's id
+     * @return the piece's color
+     */
+    public static Color getPieceColor(int id) {
+        return PIECE_COLORS[id];
     }
-}
\ No newline at end of file
+}
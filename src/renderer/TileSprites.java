@@ -0,0 +1,109 @@
+package renderer;
+
+import game.GameState;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * A <code>TileSprites</code> instance contains pre-rendered images of the tiles drawn on the playfield for a single tile size.
+ * There is an opaque sprite for every piece color and for the white tiles of rows being cleared, and a translucent outline
+ * sprite for the ghost piece of every piece color.
+ * The sprites are compatible with the screen's graphics configuration, so they can be cached in video memory and drawn
+ * with a single accelerated blit.
+ */
+public class TileSprites {
+
+    private final int tileSize;
+    private final BufferedImage[] tiles;
+    private final BufferedImage[] ghosts;
+
+    /**
+     * Constructs a new <code>TileSprites</code> instance and renders all sprites.
+     * The sprites are 1 pixel larger than the tile size, so they cover a tile whose position was rounded up.
+     *
+     * @param configuration the graphics configuration the sprites are drawn with
+     * @param tileSize      the rounded size of a tile in pixels
+     */
+    public TileSprites(GraphicsConfiguration configuration, int tileSize) {
+        this.tileSize = tileSize;
+        tiles = new BufferedImage[GameState.PIECE_COUNT + 1];
+        ghosts = new BufferedImage[GameState.PIECE_COUNT];
+        for (int id = 0; id < GameState.PIECE_COUNT; id++) {
+            tiles[id] = createTile(configuration, Renderer.getPieceColor(id));
+            ghosts[id] = createGhost(configuration, Renderer.getPieceColor(id));
+        }
+        tiles[GameState.PIECE_COUNT] = createTile(configuration, Color.WHITE);
+    }
+
+    /**
+     * Renders an opaque tile filled with the given color.
+     *
+     * @param configuration the graphics configuration the sprite is drawn with
+     * @param color         the tile's color
+     * @return the sprite
+     */
+    private BufferedImage createTile(GraphicsConfiguration configuration, Color color) {
+        BufferedImage sprite = configuration.createCompatibleImage(tileSize + 1, tileSize + 1);
+        Graphics2D g2D = sprite.createGraphics();
+        try {
+            g2D.setPaint(color);
+            g2D.fillRect(0, 0, tileSize + 1, tileSize + 1);
+        } finally {
+            g2D.dispose();
+        }
+        return sprite;
+    }
+
+    /**
+     * Renders a translucent outline of a tile with the given color.
+     *
+     * @param configuration the graphics configuration the sprite is drawn with
+     * @param color         the outline's color
+     * @return the sprite
+     */
+    private BufferedImage createGhost(GraphicsConfiguration configuration, Color color) {
+        BufferedImage sprite = configuration.createCompatibleImage(tileSize + 1, tileSize + 1, Transparency.BITMASK);
+        Graphics2D g2D = sprite.createGraphics();
+        try {
+            g2D.setPaint(color);
+            g2D.drawRect(0, 0, tileSize, tileSize);
+        } finally {
+            g2D.dispose();
+        }
+        return sprite;
+    }
+
+    /**
+     * Returns the sprite of a tile of the piece with the given id.
+     *
+     * @param id the piece's id
+     * @return the tile's sprite
+     */
+    public BufferedImage getTile(int id) {
+        return tiles[id];
+    }
+
+    /**
+     * Returns the sprite of a tile in a row being cleared.
+     *
+     * @return the white tile's sprite
+     */
+    public BufferedImage getMarkedTile() {
+        return tiles[GameState.PIECE_COUNT];
+    }
+
+    /**
+     * Returns the outline sprite of a ghost tile of the piece with the given id.
+     *
+     * @param id the piece's id
+     * @return the ghost tile's sprite
+     */
+    public BufferedImage getGhost(int id) {
+        return ghosts[id];
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+}
@@ -0,0 +1,292 @@
+package util;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A <code>BackgroundWriter</code> instance carries out all file writes of the game on a single background thread, so
+ * saving never blocks the event dispatch thread or the game loop.
+ * <p>
+ * The writes are queued as tasks and run in the order they were submitted. The thread takes all queued tasks at once as a
+ * batch and syncs them to the disk according to its <code>SyncPolicy</code>, with <code>SyncPolicy.BATCH</code> the tasks
+ * sharing a sync target are synced once per batch. A task submitted with a key replaces the queued task with the same key
+ * that hasn't started yet, e.g. repeated saves of the same settings or index are written only once.
+ * Every submitted task gets a future, which completes once the task is written and synced, so the UI can report that
+ * something was saved without waiting for it.
+ * The writer is also an <code>Executor</code>, so components that write on their own, e.g. a <code>ReplayWriter</code>,
+ * can share its thread.
+ */
+public class BackgroundWriter implements Executor {
+
+    /**
+     * When the written data is synced to the disk.
+     */
+    public enum SyncPolicy {
+        /**
+         * After every task.
+         */
+        ALWAYS,
+        /**
+         * After all tasks of a batch are written.
+         */
+        BATCH,
+        /**
+         * Never, the operating system writes the data eventually.
+         */
+        NEVER
+    }
+
+    /**
+     * A write carried out on the background thread.
+     */
+    public interface Task {
+
+        /**
+         * Writes the data.
+         *
+         * @throws IOException if the data can't be written
+         */
+        void write() throws IOException;
+
+        /**
+         * Forces the written data to the disk.
+         *
+         * @throws IOException if the data can't be synced
+         */
+        default void sync() throws IOException {
+        }
+
+        /**
+         * Returns what <code>sync()</code> forces to the disk, e.g. the written file. With <code>SyncPolicy.BATCH</code>,
+         * only 1 of the tasks of a batch with the same target is synced, its result is the result of all of them.
+         *
+         * @return the sync target, by default the task itself
+         */
+        default Object syncTarget() {
+            return this;
+        }
+    }
+
+    /**
+     * A queued task and the future completed once it's done.
+     */
+    private static class PendingTask {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private Task task;
+
+        private PendingTask(Task task) {
+            this.task = task;
+        }
+    }
+
+    private final SyncPolicy syncPolicy;
+    private final Thread thread;
+    private final ArrayDeque<PendingTask> queue = new ArrayDeque<>();
+    private final Map<Object, PendingTask> queuedByKey = new HashMap<>();
+    private boolean shutdown;
+
+    /**
+     * The sync targets already synced during the current batch and the errors they failed with, only used by the thread.
+     */
+    private final Map<Object, IOException> syncedTargets = new HashMap<>();
+
+    /**
+     * Constructs a new <code>BackgroundWriter</code> instance and starts its thread.
+     *
+     * @param name       the name of the thread
+     * @param syncPolicy when the written data is synced to the disk
+     */
+    public BackgroundWriter(String name, SyncPolicy syncPolicy) {
+        this.syncPolicy = syncPolicy;
+        thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues the given task.
+     *
+     * @param task the task
+     * @return the future completed once the task is written and synced, or completed exceptionally if it failed
+     */
+    public CompletableFuture<Void> submit(Task task) {
+        return submit(null, task);
+    }
+
+    /**
+     * Queues the given task, replacing the queued task with the same key if it hasn't started yet.
+     * The new task moves to the end of the queue, so it still runs after every task submitted before it, and the replaced
+     * task's future completes together with it.
+     *
+     * @param key  the key of the written data, e.g. the file's path, <code>null</code> to never replace any task
+     * @param task the task
+     * @return the future completed once the task is written and synced, or completed exceptionally if it failed
+     * @throws RejectedExecutionException if the writer was shut down
+     */
+    public synchronized CompletableFuture<Void> submit(Object key, Task task) throws RejectedExecutionException {
+        if (shutdown) throw new RejectedExecutionException("Background writer was shut down!");
+        if (key != null) {
+            PendingTask queued = queuedByKey.get(key);
+            if (queued != null) {
+                queue.remove(queued);
+                queued.task = task;
+                queue.add(queued);
+                return queued.future;
+            }
+        }
+        PendingTask pending = new PendingTask(task);
+        queue.add(pending);
+        if (key != null) queuedByKey.put(key, pending);
+        notifyAll();
+        return pending.future;
+    }
+
+    /**
+     * Runs the given command on the writer's thread, in order with the other tasks.
+     *
+     * @param command the command
+     * @throws RejectedExecutionException if the writer was shut down
+     */
+    @Override
+    public void execute(Runnable command) throws RejectedExecutionException {
+        submit(command::run);
+    }
+
+    /**
+     * Returns a future completed once all tasks submitted so far are done.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> flush() {
+        return submit(() -> {
+        });
+    }
+
+    /**
+     * Stops accepting tasks, waits until the queued tasks are written and synced and stops the thread.
+     * Can be called any number of times, e.g. from a shutdown hook.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            notifyAll();
+        }
+        if (Thread.currentThread() == thread) return;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes the queued tasks as batches and runs them until the writer is shut down and the queue is empty.
+     */
+    private void run() {
+        List<PendingTask> batch = new ArrayList<>();
+        while (true) {
+            synchronized (this) {
+                while (queue.isEmpty() && !shutdown) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        shutdown = true;
+                    }
+                }
+                if (queue.isEmpty()) return;
+                batch.addAll(queue);
+                queue.clear();
+                queuedByKey.clear();
+            }
+            try {
+                runBatch(batch);
+            } catch (Throwable e) {
+                abort(e);
+                throw e;
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Shuts the writer down after its thread failed, the queued tasks fail with the given error and no more tasks are
+     * accepted.
+     *
+     * @param error the error the thread failed with
+     */
+    private synchronized void abort(Throwable error) {
+        shutdown = true;
+        for (PendingTask pending : queue) {
+            pending.future.completeExceptionally(error);
+        }
+        queue.clear();
+        queuedByKey.clear();
+        notifyAll();
+    }
+
+    /**
+     * Writes the tasks of a batch and syncs them according to the sync policy, each sync target once per batch with
+     * <code>SyncPolicy.BATCH</code>, then completes their futures.
+     * The futures are completed even if a task fails with an error, the tasks without a result of their own fail with it.
+     *
+     * @param batch the tasks
+     */
+    private void runBatch(List<PendingTask> batch) {
+        IOException[] errors = new IOException[batch.size()];
+        Throwable fatalError = null;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Task task = batch.get(i).task;
+                try {
+                    task.write();
+                    if (syncPolicy == SyncPolicy.ALWAYS) task.sync();
+                } catch (IOException | RuntimeException e) {
+                    errors[i] = toIOException(e);
+                }
+            }
+            if (syncPolicy == SyncPolicy.BATCH) {
+                for (int i = 0; i < batch.size(); i++) {
+                    if (errors[i] != null) continue;
+                    Task task = batch.get(i).task;
+                    Object target = task.syncTarget();
+                    if (!syncedTargets.containsKey(target)) {
+                        IOException error = null;
+                        try {
+                            task.sync();
+                        } catch (IOException | RuntimeException e) {
+                            error = toIOException(e);
+                        }
+                        syncedTargets.put(target, error);
+                    }
+                    errors[i] = syncedTargets.get(target);
+                }
+            }
+        } catch (Throwable e) {
+            fatalError = e;
+            throw e;
+        } finally {
+            syncedTargets.clear();
+            for (int i = 0; i < batch.size(); i++) {
+                CompletableFuture<Void> future = batch.get(i).future;
+                if (errors[i] != null) {
+                    future.completeExceptionally(errors[i]);
+                } else if (fatalError != null) {
+                    future.completeExceptionally(fatalError);
+                } else {
+                    future.complete(null);
+                }
+            }
+        }
+    }
+
+    private static IOException toIOException(Exception e) {
+        return e instanceof IOException ? (IOException) e : new IOException(e);
+    }
+}
@@ -25,6 +25,18 @@ public abstract class DisplayInfo {
         return true;
     }
 
+    /**
+     * Saves the given resolution.
+     * Used when the game is rendered without a window, e.g. to an off-screen image.
+     *
+     * @param w the width
+     * @param h the height
+     */
+    public static void setResolution(int w, int h) {
+        DisplayInfo.w = w;
+        DisplayInfo.h = h;
+    }
+
     public static int getW() {
         return w;
     }
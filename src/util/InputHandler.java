@@ -1,18 +1,21 @@
 package util;
 
-import game.GameState;
-import renderer.Renderer;
+import game.GameLoop;
+import game.Input;
+import renderer.GameJFrame;
 
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
-import java.util.HashMap;
+import java.util.BitSet;
 
 /**
  * Handles all button events during the game.
- * The individual methods should be called when their corresponding actions occur.
+ * The individual methods should be called on the event dispatch thread when their corresponding actions occur.
+ * The pressed keys are kept in a bitset, the inputs are queued to the game loop, which carries them out on its own thread.
+ * Holding a direction key is passed on as a start and a stop input, the game repeats the move itself.
  */
 public abstract class InputHandler {
-    private static HashMap<Integer, Boolean> keyPressed = new HashMap<>();
+    private static final BitSet keysPressed = new BitSet(256);
 
     /**
      * Gets whether the key is being held down.
@@ -21,8 +24,7 @@ public abstract class InputHandler {
      * @return whether the key is being held down
      */
     public static boolean getKeyPressed(int key) {
-        if (keyPressed.containsKey(key)) return keyPressed.get(key);
-        return false;
+        return keysPressed.get(key);
     }
 
     /**
@@ -31,42 +33,47 @@ public abstract class InputHandler {
      * @param key the key that was pressed
      */
     public static void pressKey(int key) {
-        keyPressed.put(key, true);
+        keysPressed.set(key);
+        GameLoop game = GameJFrame.getWindow().getGameLoop();
         if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
-            // Move left
-            GameState.getGame().getFallingPiece().move(-1);
-            Renderer.render();
+            // Move left, repeated while held
+            game.applyInput(Input.MOVE_LEFT_START);
         } else if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
-            // Move right
-            GameState.getGame().getFallingPiece().move(1);
-            Renderer.render();
+            // Move right, repeated while held
+            game.applyInput(Input.MOVE_RIGHT_START);
         } else if (key == KeyEvent.VK_UP || key == KeyEvent.VK_W) {
             // Rotate piece clockwise
-            GameState.getGame().getFallingPiece().rotate(1);
+            game.applyInput(Input.ROTATE_CLOCKWISE);
         } else if (key == KeyEvent.VK_Y || key == KeyEvent.VK_Z || key == KeyEvent.VK_CONTROL) {
             // Rotate piece counterclockwise
-            GameState.getGame().getFallingPiece().rotate(-1);
+            game.applyInput(Input.ROTATE_COUNTERCLOCKWISE);
         } else if (key == KeyEvent.VK_DOWN || key == KeyEvent.VK_S) {
             // Soft drop
-            GameState.getGame().softDrop();
+            game.applyInput(Input.SOFT_DROP_START);
         } else if (key == KeyEvent.VK_SPACE) {
             // Hard drop (piece falls down immediately)
-            GameState.getGame().hardDrop();
+            game.applyInput(Input.HARD_DROP);
         } else if (key == KeyEvent.VK_C || key == KeyEvent.VK_SHIFT) {
             // Hold
-            if (!GameState.getGame().getFallingPiece().wasAlreadyHeld()) GameState.getGame().hold();
+            game.applyInput(Input.HOLD);
         }
     }
 
     /**
      * Sets the key as released, i.e. not held down.
+     * A held action stops once none of its keys are held down anymore.
      *
      * @param key the key to be released
      */
     public static void releaseKey(int key) {
-        keyPressed.put(key, false);
-        if (key == 83 || key == 40) {
-            GameState.getGame().resetGravityTimerDelay();
+        keysPressed.clear(key);
+        GameLoop game = GameJFrame.getWindow().getGameLoop();
+        if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_A) {
+            if (!keysPressed.get(KeyEvent.VK_LEFT) && !keysPressed.get(KeyEvent.VK_A)) game.applyInput(Input.MOVE_LEFT_STOP);
+        } else if (key == KeyEvent.VK_RIGHT || key == KeyEvent.VK_D) {
+            if (!keysPressed.get(KeyEvent.VK_RIGHT) && !keysPressed.get(KeyEvent.VK_D)) game.applyInput(Input.MOVE_RIGHT_STOP);
+        } else if (key == KeyEvent.VK_S || key == KeyEvent.VK_DOWN) {
+            if (!keysPressed.get(KeyEvent.VK_S) && !keysPressed.get(KeyEvent.VK_DOWN)) game.applyInput(Input.SOFT_DROP_STOP);
         }
     }
 
@@ -77,10 +84,10 @@ public abstract class InputHandler {
      */
     public static void pressMouse(int button) {
         if (button == MouseEvent.BUTTON1) {
-            GameState.getGame().hardDrop();
+            GameJFrame.getWindow().getGameLoop().applyInput(Input.HARD_DROP);
         }
         if (button == MouseEvent.BUTTON3) {
-            GameState.getGame().getFallingPiece().rotate(1);
+            GameJFrame.getWindow().getGameLoop().applyInput(Input.ROTATE_CLOCKWISE);
         }
     }
 }
@@ -0,0 +1,393 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A <code>Leaderboard</code> instance stores the results of all finished games and keeps the best results of each game mode.
+ * <p>
+ * Every result is appended to <code>scores.log</code> as a fixed-size record ending with its CRC32, the log is never
+ * rewritten. The best <code>TOP_SCORE_COUNT</code> results of each mode are kept in <code>top.idx</code>, which is
+ * memory-mapped, so the top scores are read without going through the log. The index has 2 slots, each holding the best
+ * results, the length of the log they cover, a sequence number and a CRC32. An update is written into the older slot, so a
+ * slot that was only partially written is ignored and the previous results are still used. If both slots are damaged, or
+ * the index covers more of the log than reached the disk, the index is rebuilt from the log. Several results can be appended
+ * before the index is rewritten once for all of them.
+ * <p>
+ * If the game crashes while a result is being saved, a partially written record at the end of the log is cut off and the
+ * records missing from the index are added to it the next time the leaderboard is opened. An index that can't be read is
+ * rebuilt from the whole log.
+ * The highscore of the old <code>highscore.txt</code> is imported into a new leaderboard.
+ */
+public class Leaderboard {
+
+    public static final String DEFAULT_DIRECTORY = "save/leaderboard";
+
+    /**
+     * The mode of the standard game, which goes on until the pieces reach the top of the board.
+     */
+    public static final int MARATHON = 0;
+
+    /**
+     * The amount of game modes the index has room for, modes are numbered from 0.
+     */
+    public static final int MODE_COUNT = 8;
+
+    /**
+     * The amount of results kept for each mode.
+     */
+    public static final int TOP_SCORE_COUNT = 10;
+
+    private static final String LOG_FILE = "scores.log";
+    private static final String INDEX_FILE = "top.idx";
+    private static final String LEGACY_HIGHSCORE_FILE = "highscore.txt";
+
+    /**
+     * The size of a record: the score, lines, level, time, mode, seed and timestamp, padding and the CRC32.
+     */
+    private static final int RECORD_SIZE = 40;
+    private static final int CHECKSUMMED_SIZE = RECORD_SIZE - Integer.BYTES;
+
+    private static final int INDEX_MAGIC = 0x54424C31;
+    private static final int SLOT_HEADER_SIZE = Integer.BYTES + 2 * Long.BYTES;
+    private static final int MODE_SIZE = Integer.BYTES + TOP_SCORE_COUNT * RECORD_SIZE;
+    private static final int SLOT_SIZE = SLOT_HEADER_SIZE + MODE_COUNT * MODE_SIZE + Integer.BYTES;
+
+    /**
+     * Orders the results by score, results with the same score by the time they were achieved.
+     */
+    private static final Comparator<ScoreRecord> RANKING = Comparator.comparingInt(ScoreRecord::score).reversed()
+            .thenComparingLong(ScoreRecord::timestamp);
+
+    private final Path directory;
+    private final FileChannel log;
+    private final MappedByteBuffer index;
+    private long logLength;
+    private int slot;
+    private long sequence;
+
+    /**
+     * The best results of each mode including the results appended since the index was last written.
+     */
+    private List<List<ScoreRecord>> topScores;
+    private boolean indexOutdated;
+
+    /**
+     * Constructs a new <code>Leaderboard</code> instance.
+     */
+    private Leaderboard(Path directory, FileChannel log, MappedByteBuffer index) {
+        this.directory = directory;
+        this.log = log;
+        this.index = index;
+    }
+
+    /**
+     * Opens the leaderboard in the given directory, creating it if it doesn't exist.
+     * Repairs the log and the index if the game crashed while saving a result.
+     *
+     * @param directory the leaderboard's directory
+     * @return the leaderboard
+     * @throws IOException if the leaderboard can't be read or created
+     */
+    public static Leaderboard open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer index;
+            try (FileChannel indexChannel = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, 2L * SLOT_SIZE);
+            }
+            Leaderboard leaderboard = new Leaderboard(directory, log, index);
+            leaderboard.recover();
+            return leaderboard;
+        } catch (IOException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Cuts off a partially written record at the end of the log, picks the newest valid slot of the index and brings it up
+     * to date with the log.
+     * A new leaderboard imports the legacy highscore.
+     *
+     * @throws IOException if the log can't be accessed
+     */
+    private void recover() throws IOException {
+        logLength = log.size() - log.size() % RECORD_SIZE;
+        if (logLength != log.size()) {
+            log.truncate(logLength);
+            log.force(true);
+        }
+
+        long coveredLength = -1;
+        for (int i = 0; i < 2; i++) {
+            if (!isSlotValid(i)) continue;
+            long slotSequence = index.getLong(i * SLOT_SIZE + Integer.BYTES);
+            if (coveredLength >= 0 && slotSequence <= sequence) continue;
+            slot = i;
+            sequence = slotSequence;
+            coveredLength = index.getLong(i * SLOT_SIZE + Integer.BYTES + Long.BYTES);
+        }
+
+        if (coveredLength != logLength) {
+            List<List<ScoreRecord>> topScores = coveredLength < 0 || coveredLength > logLength ? emptyTopScores() : readTopScores();
+            if (coveredLength < 0 || coveredLength > logLength) coveredLength = 0;
+            ByteBuffer records = ByteBuffer.allocate((int) (logLength - coveredLength));
+            while (records.hasRemaining()) {
+                if (log.read(records, coveredLength + records.position()) < 0) break;
+            }
+            records.flip();
+            while (records.remaining() >= RECORD_SIZE) {
+                ScoreRecord record = readRecord(records);
+                if (record != null) addTopScore(topScores, record);
+            }
+            writeTopScores(topScores);
+            index.force();
+        }
+        topScores = readTopScores();
+
+        if (logLength == 0) importLegacyHighscore();
+    }
+
+    /**
+     * Adds the highscore saved in <code>highscore.txt</code> next to the leaderboard's directory, if there is one.
+     *
+     * @throws IOException if the highscore can't be added
+     */
+    private void importLegacyHighscore() throws IOException {
+        Path legacyFile = directory.toAbsolutePath().resolveSibling(LEGACY_HIGHSCORE_FILE);
+        int highscore;
+        try {
+            highscore = Integer.parseInt(Files.readString(legacyFile).trim());
+        } catch (NoSuchFileException | NumberFormatException e) {
+            return;
+        }
+        if (highscore <= 0) return;
+        add(new ScoreRecord(highscore, 0, 0, 0, MARATHON, 0, Files.getLastModifiedTime(legacyFile).toMillis()));
+        sync();
+    }
+
+    /**
+     * Saves the result of a finished game.
+     * The record is appended to the log, then the index is updated. The data reaches the disk once <code>sync()</code> is
+     * called, or whenever the operating system writes it, the leaderboard can be recovered in either order.
+     *
+     * @param record the result
+     * @throws IOException              if the result can't be saved
+     * @throws IllegalArgumentException if the result's mode is out of range
+     */
+    public synchronized void add(ScoreRecord record) throws IOException, IllegalArgumentException {
+        append(record);
+        writeIndex();
+    }
+
+    /**
+     * Appends the result of a finished game to the log without updating the index, the index includes it once
+     * <code>writeIndex()</code> is called. Until then, the top scores don't include it, and if the game crashes, it is
+     * added to the index the next time the leaderboard is opened.
+     *
+     * @param record the result
+     * @throws IOException              if the result can't be saved
+     * @throws IllegalArgumentException if the result's mode is out of range
+     */
+    public synchronized void append(ScoreRecord record) throws IOException, IllegalArgumentException {
+        if (record.mode() < 0 || record.mode() >= MODE_COUNT) throw new IllegalArgumentException("Game mode out of range!");
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        writeRecord(buffer, record);
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            log.write(buffer, logLength + buffer.position());
+        }
+        logLength += RECORD_SIZE;
+        addTopScore(topScores, record);
+        indexOutdated = true;
+    }
+
+    /**
+     * Writes the best results including all appended results into the index, unless it is already up to date.
+     */
+    public synchronized void writeIndex() {
+        if (!indexOutdated) return;
+        writeTopScores(topScores);
+        indexOutdated = false;
+    }
+
+    /**
+     * Returns the best results of the given mode, read from the memory-mapped index.
+     *
+     * @param mode the game mode
+     * @return the results ordered from the best, at most <code>TOP_SCORE_COUNT</code>
+     */
+    public synchronized List<ScoreRecord> getTopScores(int mode) {
+        if (mode < 0 || mode >= MODE_COUNT) return new ArrayList<>();
+        int position = slot * SLOT_SIZE + SLOT_HEADER_SIZE + mode * MODE_SIZE;
+        int count = index.getInt(position);
+        ByteBuffer records = index.duplicate().position(position + Integer.BYTES);
+        List<ScoreRecord> topScores = new ArrayList<>(TOP_SCORE_COUNT + 1);
+        for (int i = 0; i < count; i++) {
+            ScoreRecord record = readRecord(records);
+            if (record != null) topScores.add(record);
+        }
+        return topScores;
+    }
+
+    /**
+     * Returns the best score of the given mode.
+     *
+     * @param mode the game mode
+     * @return the highscore, 0 if no game of the mode was saved
+     */
+    public synchronized int getHighscore(int mode) {
+        if (mode < 0 || mode >= MODE_COUNT) return 0;
+        int position = slot * SLOT_SIZE + SLOT_HEADER_SIZE + mode * MODE_SIZE;
+        return index.getInt(position) == 0 ? 0 : index.getInt(position + Integer.BYTES);
+    }
+
+    /**
+     * Forces the saved results to the disk: first the log, then the index.
+     *
+     * @throws IOException if the log can't be synced
+     */
+    public synchronized void sync() throws IOException {
+        log.force(false);
+        index.force();
+    }
+
+    /**
+     * Closes the log, the leaderboard can't be used afterwards.
+     *
+     * @throws IOException if the log can't be closed
+     */
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    /**
+     * Returns whether the given slot of the index was completely written.
+     *
+     * @param slot the slot's index
+     * @return whether the slot's checksum matches
+     */
+    private boolean isSlotValid(int slot) {
+        int start = slot * SLOT_SIZE;
+        if (index.getInt(start) != INDEX_MAGIC) return false;
+        CRC32 checksum = new CRC32();
+        checksum.update(index.duplicate().position(start).limit(start + SLOT_SIZE - Integer.BYTES));
+        return (int) checksum.getValue() == index.getInt(start + SLOT_SIZE - Integer.BYTES);
+    }
+
+    /**
+     * Reads the best results of every mode from the current slot.
+     *
+     * @return the results of each mode
+     */
+    private List<List<ScoreRecord>> readTopScores() {
+        List<List<ScoreRecord>> topScores = new ArrayList<>(MODE_COUNT);
+        for (int mode = 0; mode < MODE_COUNT; mode++) {
+            topScores.add(getTopScores(mode));
+        }
+        return topScores;
+    }
+
+    private static List<List<ScoreRecord>> emptyTopScores() {
+        List<List<ScoreRecord>> topScores = new ArrayList<>(MODE_COUNT);
+        for (int mode = 0; mode < MODE_COUNT; mode++) {
+            topScores.add(new ArrayList<>(TOP_SCORE_COUNT + 1));
+        }
+        return topScores;
+    }
+
+    /**
+     * Adds the result to the best results of its mode if it is good enough.
+     *
+     * @param topScores the results of each mode
+     * @param record    the result
+     */
+    private static void addTopScore(List<List<ScoreRecord>> topScores, ScoreRecord record) {
+        if (record.mode() < 0 || record.mode() >= MODE_COUNT) return;
+        List<ScoreRecord> modeScores = topScores.get(record.mode());
+        int position = Collections.binarySearch(modeScores, record, RANKING);
+        if (position < 0) position = -position - 1;
+        if (position >= TOP_SCORE_COUNT) return;
+        modeScores.add(position, record);
+        if (modeScores.size() > TOP_SCORE_COUNT) modeScores.remove(TOP_SCORE_COUNT);
+    }
+
+    /**
+     * Writes the results into the older slot of the index with the current length of the log and makes it the current slot.
+     *
+     * @param topScores the results of each mode
+     */
+    private void writeTopScores(List<List<ScoreRecord>> topScores) {
+        ByteBuffer buffer = ByteBuffer.allocate(SLOT_SIZE);
+        buffer.putInt(INDEX_MAGIC);
+        buffer.putLong(sequence + 1);
+        buffer.putLong(logLength);
+        for (List<ScoreRecord> modeScores : topScores) {
+            int start = buffer.position();
+            buffer.putInt(modeScores.size());
+            modeScores.forEach(record -> writeRecord(buffer, record));
+            buffer.position(start + MODE_SIZE);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+
+        int newSlot = 1 - slot;
+        index.put(newSlot * SLOT_SIZE, buffer, 0, SLOT_SIZE);
+        slot = newSlot;
+        sequence++;
+    }
+
+    /**
+     * Writes the result as a record.
+     *
+     * @param buffer the buffer the record is written to
+     * @param record the result
+     */
+    private static void writeRecord(ByteBuffer buffer, ScoreRecord record) {
+        int start = buffer.position();
+        buffer.putInt(record.score());
+        buffer.putInt(record.lines());
+        buffer.putInt(record.level());
+        buffer.putInt(record.time());
+        buffer.putInt(record.mode());
+        buffer.putLong(record.seed());
+        buffer.putLong(record.timestamp());
+        buffer.position(start + CHECKSUMMED_SIZE);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().position(start).limit(start + CHECKSUMMED_SIZE));
+        buffer.putInt((int) checksum.getValue());
+    }
+
+    /**
+     * Reads a record and verifies its checksum.
+     *
+     * @param buffer the buffer the record is read from
+     * @return the result, <code>null</code> if the record is damaged
+     */
+    private static ScoreRecord readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().limit(start + CHECKSUMMED_SIZE));
+        buffer.position(start + CHECKSUMMED_SIZE);
+        if ((int) checksum.getValue() != buffer.getInt()) return null;
+
+        ByteBuffer fields = buffer.duplicate().position(start);
+        return new ScoreRecord(fields.getInt(), fields.getInt(), fields.getInt(), fields.getInt(), fields.getInt(), fields.getLong(), fields.getLong());
+    }
+}
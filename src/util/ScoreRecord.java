@@ -0,0 +1,15 @@
+package util;
+
+/**
+ * The result of a finished game, as stored in the <code>Leaderboard</code>.
+ *
+ * @param score     the final score
+ * @param lines     the amount of cleared rows
+ * @param level     the level the game ended on
+ * @param time      the length of the game in seconds
+ * @param mode      the game mode, e.g. <code>Leaderboard.MARATHON</code>
+ * @param seed      the seed of the game's piece order
+ * @param timestamp the time the game ended, in milliseconds since the epoch
+ */
+public record ScoreRecord(int score, int lines, int level, int time, int mode, long seed, long timestamp) {
+}
@@ -0,0 +1,262 @@
+package util;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.List;
+
+/**
+ * A <code>TextureAtlas</code> instance contains several textures packed into a single image.
+ * Every texture is a named region of the image.
+ * The game's textures are stored as <code>assets/textures/atlas.png</code>, the regions are listed in
+ * <code>assets/textures/atlas.txt</code> as lines of <code>name x y width height</code>. Both files are generated from the
+ * separate textures by running this class.
+ */
+public class TextureAtlas {
+
+    public static final String IMAGE_PATH = "assets/textures/atlas.png";
+    public static final String INDEX_PATH = "assets/textures/atlas.txt";
+
+    /**
+     * The names of the textures packed into the atlas, the texture <code>name</code> is read from
+     * <code>assets/textures/name.png</code>.
+     */
+    private static final String[] TEXTURE_NAMES = {"logo", "pieces/0", "pieces/1", "pieces/2", "pieces/3", "pieces/4", "pieces/5", "pieces/6"};
+
+    private static final int PADDING = 1;
+
+    /**
+     * Identifies the raw format written by <code>writeRaw()</code>.
+     */
+    private static final int RAW_MAGIC = 0x54415431;
+
+    private final BufferedImage image;
+    private final Map<String, Rectangle> regions;
+
+    /**
+     * Constructs a new <code>TextureAtlas</code> instance.
+     *
+     * @param image   the image containing the textures
+     * @param regions the regions of the textures, by their names
+     */
+    private TextureAtlas(BufferedImage image, Map<String, Rectangle> regions) {
+        this.image = image;
+        this.regions = regions;
+    }
+
+    /**
+     * Packs the given textures into a new atlas.
+     * The textures are placed on shelves from the tallest to the shortest, with a transparent pixel between them.
+     *
+     * @param textures the textures to be packed, by their names
+     * @return the new atlas
+     */
+    public static TextureAtlas pack(Map<String, BufferedImage> textures) {
+        List<String> names = new ArrayList<>(textures.keySet());
+        names.sort(Comparator.comparingInt((String name) -> textures.get(name).getHeight()).reversed().thenComparing(Comparator.naturalOrder()));
+
+        // Aim for a roughly square atlas, but at least as wide as the widest texture
+        long area = 0;
+        int width = 1;
+        for (BufferedImage texture : textures.values()) {
+            area += (long) (texture.getWidth() + PADDING) * (texture.getHeight() + PADDING);
+            width = Math.max(width, texture.getWidth());
+        }
+        width = Math.max(width, (int) Math.ceil(Math.sqrt(area)));
+
+        Map<String, Rectangle> regions = new LinkedHashMap<>();
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+        for (String name : names) {
+            BufferedImage texture = textures.get(name);
+            if (x + texture.getWidth() > width) {
+                x = 0;
+                y += shelfHeight + PADDING;
+                shelfHeight = 0;
+            }
+            regions.put(name, new Rectangle(x, y, texture.getWidth(), texture.getHeight()));
+            x += texture.getWidth() + PADDING;
+            shelfHeight = Math.max(shelfHeight, texture.getHeight());
+        }
+
+        BufferedImage image = new BufferedImage(width, Math.max(y + shelfHeight, 1), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2D = image.createGraphics();
+        try {
+            for (Map.Entry<String, Rectangle> region : regions.entrySet()) {
+                g2D.drawImage(textures.get(region.getKey()), region.getValue().x, region.getValue().y, null);
+            }
+        } finally {
+            g2D.dispose();
+        }
+        return new TextureAtlas(image, regions);
+    }
+
+    /**
+     * Reads the game's atlas from <code>IMAGE_PATH</code> and <code>INDEX_PATH</code>.
+     *
+     * @return the game's atlas
+     * @throws IOException if the atlas can't be read
+     */
+    public static TextureAtlas read() throws IOException {
+        BufferedImage image = ImageIO.read(new File(IMAGE_PATH));
+        if (image == null) throw new IOException("Image not initialized");
+
+        Map<String, Rectangle> regions = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(Path.of(INDEX_PATH))) {
+            if (line.isBlank()) continue;
+            String[] values = line.trim().split("\\s+");
+            if (values.length != 5) throw new IOException("Invalid atlas region: " + line);
+            try {
+                regions.put(values[0], new Rectangle(Integer.parseInt(values[1]), Integer.parseInt(values[2]), Integer.parseInt(values[3]), Integer.parseInt(values[4])));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid atlas region: " + line, e);
+            }
+        }
+        return new TextureAtlas(image, regions);
+    }
+
+    /**
+     * Writes the atlas to <code>IMAGE_PATH</code> and <code>INDEX_PATH</code>.
+     *
+     * @throws IOException if the atlas can't be written
+     */
+    public void write() throws IOException {
+        ImageIO.write(image, "png", new File(IMAGE_PATH));
+        try (BufferedWriter writer = Files.newBufferedWriter(Path.of(INDEX_PATH))) {
+            for (Map.Entry<String, Rectangle> region : regions.entrySet()) {
+                Rectangle bounds = region.getValue();
+                writer.write(region.getKey() + " " + bounds.x + " " + bounds.y + " " + bounds.width + " " + bounds.height);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Reads an atlas written by <code>writeRaw()</code>.
+     * The pixels are copied straight into the image's buffer, nothing has to be decoded.
+     *
+     * @param path the file to be read
+     * @return the atlas
+     * @throws IOException if the file can't be read or isn't a raw atlas
+     */
+    public static TextureAtlas readRaw(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        try {
+            if (buffer.getInt() != RAW_MAGIC) throw new IOException("Not a raw texture atlas: " + path);
+
+            int regionCount = buffer.getInt();
+            Map<String, Rectangle> regions = new LinkedHashMap<>();
+            for (int i = 0; i < regionCount; i++) {
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                regions.put(new String(name, StandardCharsets.UTF_8), new Rectangle(buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt()));
+            }
+
+            BufferedImage image = new BufferedImage(buffer.getInt(), buffer.getInt(), BufferedImage.TYPE_INT_ARGB);
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            IntBuffer pixelBuffer = buffer.asIntBuffer();
+            if (pixelBuffer.remaining() != pixels.length) throw new IOException("Truncated raw texture atlas: " + path);
+            pixelBuffer.get(pixels);
+            return new TextureAtlas(image, regions);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted raw texture atlas: " + path, e);
+        }
+    }
+
+    /**
+     * Writes the atlas as its region list followed by the uncompressed ARGB pixels.
+     * The file is written to a temporary file first and then moved, so a partially written atlas is never read.
+     *
+     * @param path the file to be written
+     * @throws IOException if the file can't be written
+     */
+    public void writeRaw(Path path) throws IOException {
+        BufferedImage argbImage = image;
+        if (image.getType() != BufferedImage.TYPE_INT_ARGB) {
+            argbImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2D = argbImage.createGraphics();
+            try {
+                g2D.drawImage(image, 0, 0, null);
+            } finally {
+                g2D.dispose();
+            }
+        }
+        int[] pixels = ((DataBufferInt) argbImage.getRaster().getDataBuffer()).getData();
+
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryPath = Files.createTempFile(directory, "atlas", ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+            output.writeInt(RAW_MAGIC);
+            output.writeInt(regions.size());
+            for (Map.Entry<String, Rectangle> region : regions.entrySet()) {
+                byte[] name = region.getKey().getBytes(StandardCharsets.UTF_8);
+                output.writeShort(name.length);
+                output.write(name);
+                Rectangle bounds = region.getValue();
+                output.writeInt(bounds.x);
+                output.writeInt(bounds.y);
+                output.writeInt(bounds.width);
+                output.writeInt(bounds.height);
+            }
+            output.writeInt(argbImage.getWidth());
+            output.writeInt(argbImage.getHeight());
+            ByteBuffer buffer = ByteBuffer.allocate(pixels.length * Integer.BYTES);
+            buffer.asIntBuffer().put(pixels);
+            output.write(buffer.array());
+        } catch (IOException e) {
+            Files.deleteIfExists(temporaryPath);
+            throw e;
+        }
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the texture with the given name.
+     * The texture shares its pixels with the atlas.
+     *
+     * @param name the texture's name
+     * @return the texture, <code>null</code> if the atlas doesn't contain it
+     */
+    public BufferedImage getTexture(String name) {
+        Rectangle bounds = regions.get(name);
+        if (bounds == null) return null;
+        return image.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * Returns the names of the textures in the atlas.
+     *
+     * @return the texture names
+     */
+    public Set<String> getTextureNames() {
+        return Collections.unmodifiableSet(regions.keySet());
+    }
+
+    /**
+     * Packs the separate textures from <code>assets/textures</code> into the game's atlas.
+     * Has to be run whenever a texture changes.
+     *
+     * @param args unused
+     * @throws IOException if a texture can't be read or the atlas can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, BufferedImage> textures = new LinkedHashMap<>();
+        for (String name : TEXTURE_NAMES) {
+            BufferedImage texture = ImageIO.read(new File("assets/textures/" + name + ".png"));
+            if (texture == null) throw new IOException("Image not initialized: " + name);
+            textures.put(name, texture);
+        }
+        pack(textures).write();
+    }
+}
@@ -0,0 +1,125 @@
+package util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Used for loading the game's textures scaled to the screen's resolution.
+ * The scaled textures are packed into an atlas, which is cached in <code>cache/textures</code> for every resolution.
+ * If the cached atlas exists, it is read without decoding or scaling anything, otherwise the textures are scaled in
+ * parallel and the atlas is cached for the next start.
+ * The textures are loaded on a background thread, the returned future completes once they are ready.
+ */
+public abstract class TextureCache {
+
+    private static final String DIRECTORY = "cache/textures";
+
+    /**
+     * The resolution the textures are made for, they are scaled down proportionally to the screen's resolution.
+     */
+    private static final int TEXTURE_RESOLUTION_X = 5760;
+    private static final int TEXTURE_RESOLUTION_Y = 3240;
+
+    private static CompletableFuture<TextureAtlas> atlas;
+    private static int atlasW;
+    private static int atlasH;
+
+    /**
+     * Starts loading the textures scaled to the current resolution, unless they are already being loaded.
+     * <code>DisplayInfo</code>'s resolution has to be set first.
+     *
+     * @return the future of the atlas containing the scaled textures
+     */
+    public static synchronized CompletableFuture<TextureAtlas> load() {
+        int w = DisplayInfo.getW();
+        int h = DisplayInfo.getH();
+        if (atlas == null || atlasW != w || atlasH != h) {
+            atlas = CompletableFuture.supplyAsync(() -> loadScaled(w, h));
+            atlasW = w;
+            atlasH = h;
+        }
+        return atlas;
+    }
+
+    /**
+     * Reads the cached atlas for the given resolution, or scales the textures and caches the atlas if it isn't cached yet.
+     * A cache that can't be read or written is ignored.
+     *
+     * @param w the horizontal resolution
+     * @param h the vertical resolution
+     * @return the atlas containing the scaled textures
+     * @throws UncheckedIOException if the textures can't be read
+     */
+    private static TextureAtlas loadScaled(int w, int h) throws UncheckedIOException {
+        Path cachePath = getCachePath(w, h);
+        if (Files.isRegularFile(cachePath)) {
+            try {
+                return TextureAtlas.readRaw(cachePath);
+            } catch (IOException e) {
+
+            }
+        }
+
+        TextureAtlas source;
+        try {
+            source = TextureAtlas.read();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, BufferedImage> textures = source.getTextureNames().parallelStream()
+                .collect(Collectors.toConcurrentMap(Function.identity(), name -> scale(source.getTexture(name), w, h)));
+        TextureAtlas scaled = TextureAtlas.pack(textures);
+
+        try {
+            scaled.writeRaw(cachePath);
+        } catch (IOException e) {
+
+        }
+        return scaled;
+    }
+
+    /**
+     * Smoothly scales the given texture to the given resolution.
+     *
+     * @param texture the texture to be scaled
+     * @param w       the horizontal resolution
+     * @param h       the vertical resolution
+     * @return the scaled texture
+     */
+    private static BufferedImage scale(BufferedImage texture, int w, int h) {
+        int width = Math.max(texture.getWidth() * w / TEXTURE_RESOLUTION_X, 1);
+        int height = Math.max(texture.getHeight() * h / TEXTURE_RESOLUTION_Y, 1);
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2D = scaled.createGraphics();
+        try {
+            g2D.drawImage(texture.getScaledInstance(width, height, Image.SCALE_SMOOTH), 0, 0, null);
+        } finally {
+            g2D.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Returns the path of the cached atlas for the given resolution.
+     * The name contains the size and the modification time of the source atlas, so a changed atlas isn't read from the cache.
+     *
+     * @param w the horizontal resolution
+     * @param h the vertical resolution
+     * @return the path of the cached atlas
+     */
+    private static Path getCachePath(int w, int h) {
+        File image = new File(TextureAtlas.IMAGE_PATH);
+        File index = new File(TextureAtlas.INDEX_PATH);
+        long version = image.lastModified() ^ image.length() ^ (index.lastModified() * 31) ^ (index.length() * 31);
+        return Path.of(DIRECTORY, "atlas-" + w + "x" + h + "-" + Long.toHexString(version) + ".bin");
+    }
+}